@@ -1,5 +1,7 @@
 package net.yudichev.ntetris;
 
+import net.yudichev.ntetris.game.EngineMode;
+import net.yudichev.ntetris.game.ShapeCatalogue;
 import org.immutables.value.Value;
 import org.immutables.value.Value.Immutable;
 
@@ -14,4 +16,52 @@ interface BaseSettings {
     default double accelerationRatePerMinute() {
         return 1.05;
     }
+
+    @Value.Default
+    default ShapeCatalogue shapeCatalogue() {
+        return ShapeCatalogue.standard();
+    }
+
+    /**
+     * How many times a second the game is simulated, independent of the frame rate, see {@link FixedTimestepGame}.
+     */
+    @Value.Default
+    default int simulationStepsPerSecond() {
+        return 60;
+    }
+
+    /**
+     * The most simulation steps a frame runs, so that a frame after one that stalled does not stall too.
+     */
+    @Value.Default
+    default int maxSimulationStepsPerFrame() {
+        return 4;
+    }
+
+    @Value.Default
+    default CatchUpPolicy catchUpPolicy() {
+        return CatchUpPolicy.SPREAD;
+    }
+
+    /**
+     * How long a frame may take, in {@link GameTime} ticks, before the work deferred during it waits for the next
+     * frames, see {@link DeferredWorkScheduler}; three quarters of a frame at 60 frames a second.
+     */
+    @Value.Default
+    default long frameBudget() {
+        return GameTime.TICKS_PER_SECOND / 60 * 3 / 4;
+    }
+
+    /**
+     * How many frames deferred work may wait for before it runs over the {@link #frameBudget()}.
+     */
+    @Value.Default
+    default int maxDeferredFrames() {
+        return 30;
+    }
+
+    @Value.Default
+    default EngineMode engineMode() {
+        return EngineMode.PRODUCTION;
+    }
 }
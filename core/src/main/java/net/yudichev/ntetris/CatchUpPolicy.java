@@ -0,0 +1,17 @@
+package net.yudichev.ntetris;
+
+/**
+ * What {@link FixedTimestepGame} does with the simulation steps that are due after a frame took too long to run them
+ * all in the next frame.
+ */
+public enum CatchUpPolicy {
+    /**
+     * Runs the steps that are due over the following frames, the most a frame allows at a time, so the game catches up
+     * with the time it lost; at most a second of steps is caught up, the rest is dropped.
+     */
+    SPREAD,
+    /**
+     * Forgets the steps that are due, so the game carries on from where it was as if the time had not passed.
+     */
+    DROP
+}
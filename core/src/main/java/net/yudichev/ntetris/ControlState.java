@@ -3,5 +3,5 @@ package net.yudichev.ntetris;
 import java.util.function.Consumer;
 
 public interface ControlState {
-    void forAllActiveControls(double gameTime, Consumer<GameControl> activeControlConsumer);
+    void forAllActiveControls(long gameTime, Consumer<GameControl> activeControlConsumer);
 }
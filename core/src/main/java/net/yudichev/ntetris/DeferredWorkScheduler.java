@@ -0,0 +1,145 @@
+package net.yudichev.ntetris;
+
+import java.util.function.LongSupplier;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
+
+/**
+ * Runs the work that does not have to happen in the frame that asks for it at the end of a frame, and only while the
+ * frame is still within its time budget, so that a frame with a lot to do does not take longer than the others. Work
+ * of a higher priority runs first, and work that has waited for too many frames runs whatever the budget, so that
+ * nothing waits forever on a busy game.
+ * <p>
+ * Deferring a task does not allocate once the queues have grown to the most tasks that have been pending at once.
+ */
+public final class DeferredWorkScheduler {
+    private final LongSupplier nanoClock;
+    private final long frameBudgetNanos;
+    private final int maxDeferredFrames;
+    private final TaskQueue[] queues;
+    private final boolean inline;
+    private long frame;
+    private long frameStartNanos;
+
+    /**
+     * @param nanoClock         current time in nanoseconds, such as {@link System#nanoTime()}
+     * @param frameBudget       how long a frame may take, including its deferred work, in {@link GameTime} ticks
+     * @param maxDeferredFrames how many frames a task may be deferred for before it runs over the budget
+     */
+    public DeferredWorkScheduler(LongSupplier nanoClock, long frameBudget, int maxDeferredFrames) {
+        this(nanoClock, frameBudget, maxDeferredFrames, false);
+    }
+
+    private DeferredWorkScheduler(LongSupplier nanoClock, long frameBudget, int maxDeferredFrames, boolean inline) {
+        this.nanoClock = checkNotNull(nanoClock);
+        checkArgument(frameBudget >= 0, "Invalid frame budget: %s", frameBudget);
+        checkArgument(maxDeferredFrames >= 0, "Invalid max deferred frames: %s", maxDeferredFrames);
+        frameBudgetNanos = frameBudget * (1_000_000_000 / GameTime.TICKS_PER_SECOND);
+        this.maxDeferredFrames = maxDeferredFrames;
+        this.inline = inline;
+        queues = new TaskQueue[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new TaskQueue();
+        }
+    }
+
+    /**
+     * @return a scheduler that runs every task as soon as it is deferred, for games that are not rendered in real time,
+     * such as replays and tests
+     */
+    public static DeferredWorkScheduler inline() {
+        return new DeferredWorkScheduler(() -> 0, 0, 0, true);
+    }
+
+    public void beginFrame() {
+        frame++;
+        frameStartNanos = nanoClock.getAsLong();
+    }
+
+    public void defer(Priority priority, Runnable task) {
+        checkNotNull(task);
+        if (inline) {
+            task.run();
+        } else {
+            queues[priority.ordinal()].add(task, frame);
+        }
+    }
+
+    /**
+     * Runs the overdue tasks, then as many of the others as fit in what is left of the frame's budget.
+     */
+    public void runPending() {
+        for (TaskQueue queue : queues) {
+            while (!queue.isEmpty() && frame - queue.headFrame() >= maxDeferredFrames) {
+                queue.remove().run();
+            }
+        }
+        for (TaskQueue queue : queues) {
+            while (!queue.isEmpty() && nanoClock.getAsLong() - frameStartNanos < frameBudgetNanos) {
+                queue.remove().run();
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks that are waiting to run
+     */
+    public int pendingCount() {
+        int count = 0;
+        for (TaskQueue queue : queues) {
+            count += queue.size;
+        }
+        return count;
+    }
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    /**
+     * Tasks in the order they were deferred, with the frames they were deferred at, in a ring that grows as needed.
+     */
+    private static final class TaskQueue {
+        private static final int INITIAL_CAPACITY = 16;
+        private Runnable[] tasks = new Runnable[INITIAL_CAPACITY];
+        private long[] frames = new long[INITIAL_CAPACITY];
+        private int head;
+        private int size;
+
+        void add(Runnable task, long frame) {
+            if (size == tasks.length) {
+                Runnable[] newTasks = new Runnable[size * 2];
+                long[] newFrames = new long[size * 2];
+                for (int i = 0; i < size; i++) {
+                    int idx = (head + i) % size;
+                    newTasks[i] = tasks[idx];
+                    newFrames[i] = frames[idx];
+                }
+                tasks = newTasks;
+                frames = newFrames;
+                head = 0;
+            }
+            int tail = (head + size) % tasks.length;
+            tasks[tail] = task;
+            frames[tail] = frame;
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long headFrame() {
+            return frames[head];
+        }
+
+        Runnable remove() {
+            Runnable task = tasks[head];
+            tasks[head] = null;
+            head = (head + 1) % tasks.length;
+            size--;
+            return task;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.yudichev.ntetris;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
+
+/**
+ * Steps the game's simulation at a fixed rate, independent of the rate it is rendered at: the time that passes between
+ * frames is accumulated and spent in whole simulation steps, as many as fit, and the remainder carries over to the next
+ * frame. Each frame is then drawn at the current time, which falls between the last step and the next one. The work
+ * deferred during the frame runs after it is drawn, see {@link DeferredWorkScheduler}.
+ * <p>
+ * A frame runs a limited number of steps, so that after a frame that stalled the next one does not stall too running
+ * all the steps that became due; see {@link CatchUpPolicy} for what happens to the rest.
+ */
+public final class FixedTimestepGame implements Game {
+    private final SimulatedGame game;
+    private final long stepDuration;
+    private final int maxStepsPerFrame;
+    private final CatchUpPolicy catchUpPolicy;
+    private final long maxBacklog;
+    private final DeferredWorkScheduler deferredWork;
+    private long lastFrameTime = GameTime.NONE;
+    private long simulationTime;
+    private long accumulator;
+
+    public FixedTimestepGame(SimulatedGame game, int stepsPerSecond, int maxStepsPerFrame, CatchUpPolicy catchUpPolicy) {
+        this(game, stepsPerSecond, maxStepsPerFrame, catchUpPolicy, DeferredWorkScheduler.inline());
+    }
+
+    public FixedTimestepGame(SimulatedGame game,
+                             int stepsPerSecond,
+                             int maxStepsPerFrame,
+                             CatchUpPolicy catchUpPolicy,
+                             DeferredWorkScheduler deferredWork) {
+        this.game = checkNotNull(game);
+        checkArgument(stepsPerSecond > 0 && stepsPerSecond <= GameTime.TICKS_PER_SECOND, "Invalid steps per second: %s", stepsPerSecond);
+        checkArgument(maxStepsPerFrame > 0, "Invalid max steps per frame: %s", maxStepsPerFrame);
+        this.maxStepsPerFrame = maxStepsPerFrame;
+        this.catchUpPolicy = checkNotNull(catchUpPolicy);
+        this.deferredWork = checkNotNull(deferredWork);
+        stepDuration = GameTime.TICKS_PER_SECOND / stepsPerSecond;
+        maxBacklog = stepDuration * stepsPerSecond;
+    }
+
+    @Override
+    public void render(long gameTime) {
+        deferredWork.beginFrame();
+        if (lastFrameTime == GameTime.NONE) {
+            simulationTime = gameTime;
+            game.step(simulationTime);
+        } else {
+            accumulator += gameTime - lastFrameTime;
+            int steps = 0;
+            while (accumulator >= stepDuration && steps < maxStepsPerFrame) {
+                accumulator -= stepDuration;
+                simulationTime += stepDuration;
+                game.step(simulationTime);
+                steps++;
+            }
+            if (accumulator >= stepDuration) {
+                accumulator = catchUpPolicy == CatchUpPolicy.DROP ? accumulator % stepDuration : Math.min(accumulator, maxBacklog);
+            }
+        }
+        lastFrameTime = gameTime;
+        // while catching up, the frame shows the next step, not the ones beyond
+        game.draw(simulationTime + Math.min(accumulator, stepDuration));
+        deferredWork.runPending();
+    }
+}
@@ -1,5 +1,8 @@
 package net.yudichev.ntetris;
 
 public interface Game {
-    void render(double gameTimeMillis);
+    /**
+     * @param gameTime see {@link GameTime}
+     */
+    void render(long gameTime);
 }
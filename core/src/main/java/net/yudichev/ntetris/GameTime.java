@@ -0,0 +1,35 @@
+package net.yudichev.ntetris;
+
+/**
+ * Game time is an integer number of ticks of a microsecond, kept in a {@code long}: step counts are exact integer
+ * divisions, and a game replays the same on any JVM and platform.
+ */
+public final class GameTime {
+    public static final long TICKS_PER_MILLI = 1_000;
+    public static final long TICKS_PER_SECOND = 1_000_000;
+    /**
+     * Stands for no time, e.g. of something that has not happened yet; less than any game time.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private GameTime() {
+    }
+
+    public static long millis(long millis) {
+        return millis * TICKS_PER_MILLI;
+    }
+
+    /**
+     * @return the nearest number of ticks
+     */
+    public static long fromMillis(double millis) {
+        return Math.round(millis * TICKS_PER_MILLI);
+    }
+
+    /**
+     * @return the nearest number of ticks
+     */
+    public static long fromSeconds(double seconds) {
+        return Math.round(seconds * TICKS_PER_SECOND);
+    }
+}
@@ -13,13 +13,13 @@ import static net.yudichev.ntetris.GameControl.*;
 final class GdxControlState implements ControlState {
 
     private static final Logger logger = LoggerFactory.getLogger(GdxControlState.class);
-    private static final int KEY_PROCESSING_PERIOD = 100;
-    private static final Double ZERO = 0.0;
+    private static final long KEY_PROCESSING_PERIOD = GameTime.millis(100);
+    private static final Long ZERO = 0L;
 
     private final Set<GameControl> pressedKeys = EnumSet.noneOf(GameControl.class);
     private final Set<GameControl> unrepeatableGameControls = EnumSet.of(LEFT_PLAYER_DROP, RIGHT_PLAYER_DROP, LEFT_PLAYER_ROTATE, RIGHT_PLAYER_ROTATE, PAUSE);
     private final List<GameControl> queue = new ArrayList<>(64);
-    private final Map<GameControl, Double> timeKeyLastProcessedByGameControl = new EnumMap<>(GameControl.class);
+    private final Map<GameControl, Long> timeKeyLastProcessedByGameControl = new EnumMap<>(GameControl.class);
 
     GdxControlState() {
         Gdx.input.setInputProcessor(new InputProcessor() {
@@ -72,7 +72,7 @@ final class GdxControlState implements ControlState {
     }
 
     @Override
-    public void forAllActiveControls(double gameTime, Consumer<GameControl> activeControlConsumer) {
+    public void forAllActiveControls(long gameTime, Consumer<GameControl> activeControlConsumer) {
         queue.forEach(gameControl -> {
             activeControlConsumer.accept(gameControl);
             timeKeyLastProcessedByGameControl.put(gameControl, gameTime);
@@ -80,7 +80,7 @@ final class GdxControlState implements ControlState {
 
         pressedKeys.forEach(keyCode -> {
             if (!unrepeatableGameControls.contains(keyCode) && !queue.contains(keyCode)) {
-                double timeKeysLastProcessed = timeKeyLastProcessedByGameControl.getOrDefault(keyCode, ZERO);
+                long timeKeysLastProcessed = timeKeyLastProcessedByGameControl.getOrDefault(keyCode, ZERO);
                 if (gameTime - timeKeysLastProcessed > KEY_PROCESSING_PERIOD) {
                     logger.debug("repeat {}", keyCode);
                     activeControlConsumer.accept(keyCode);
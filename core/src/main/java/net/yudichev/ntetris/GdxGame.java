@@ -3,8 +3,11 @@ package net.yudichev.ntetris;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.TimeUtils;
 import net.yudichev.ntetris.canvas.GdxGameCanvas;
 import net.yudichev.ntetris.game.NTetris;
+import net.yudichev.ntetris.game.SequentialRubbleRowsExecutor;
+import net.yudichev.ntetris.game.ShapeCatalogue;
 import net.yudichev.ntetris.journal.FileJournal;
 import net.yudichev.ntetris.sound.GdxSounds;
 
@@ -12,10 +15,11 @@ import java.nio.file.Paths;
 import java.util.Random;
 
 public class GdxGame extends ApplicationAdapter {
-    private double gameTimeMillis = Float.MIN_VALUE;
+    private long gameTime = GameTime.NONE;
     private Game game;
     private GdxGameCanvas canvas;
     private GdxSounds sounds;
+    private FileJournal journal;
 
     @Override
     public void create() {
@@ -23,40 +27,54 @@ public class GdxGame extends ApplicationAdapter {
         Settings settings = Settings.builder()
                 .setSceneHeightBlocks(height)
                 .setSceneWidthBlocks(height * 5 / 3)
+                .setShapeCatalogue(ShapeCatalogue.parse(Gdx.files.internal("shapes.txt").readString("UTF-8")))
                 .build();
 
         canvas = new GdxGameCanvas(settings);
         sounds = new GdxSounds();
         Random random = new Random();
+        journal = new FileJournal(Paths.get("journal.txt")); // TODO remove
+        DeferredWorkScheduler deferredWork = new DeferredWorkScheduler(TimeUtils::nanoTime, settings.frameBudget(), settings.maxDeferredFrames());
         NTetris nTetris = new NTetris(settings,
                 canvas,
                 sounds,
                 new GdxControlState(),
 //                new NoopGameJournal(),
-                new FileJournal(Paths.get("journal.txt")), // TODO remove
-                random::nextInt);
+                journal,
+                random::nextInt,
+                SequentialRubbleRowsExecutor.INSTANCE,
+                deferredWork);
         nTetris.addRubbleColumnWithHole(settings.sceneWidthBlocks() / 2, settings.sceneHeightBlocks() / 2);
-        game = nTetris;
+        game = new FixedTimestepGame(nTetris,
+                settings.simulationStepsPerSecond(),
+                settings.maxSimulationStepsPerFrame(),
+                settings.catchUpPolicy(),
+                deferredWork);
     }
 
     @Override
     public void render() {
-        double deltaTime = Gdx.graphics.getDeltaTime();
-        //noinspection FloatingPointEquality
-        if (gameTimeMillis == Float.MIN_VALUE) {
-            gameTimeMillis = 0;
+        if (gameTime == GameTime.NONE) {
+            gameTime = 0;
         } else {
-            gameTimeMillis += deltaTime * 1_000;
+            gameTime += GameTime.fromSeconds(Gdx.graphics.getDeltaTime());
         }
         Gdx.gl.glClearColor(1, 1, 1, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-        game.render(gameTimeMillis);
+        try {
+            game.render(gameTime);
+        } catch (RuntimeException | Error e) {
+            // so that the journal can replay the frame that failed
+            journal.flush();
+            throw e;
+        }
     }
 
     @Override
     public void dispose() {
         canvas.close();
         sounds.close();
+        journal.close();
     }
 }
@@ -4,7 +4,7 @@ import net.yudichev.ntetris.journal.GameJournal;
 
 public final class NoopGameJournal implements GameJournal {
     @Override
-    public void beginFrame(double time) {
+    public void beginFrame(long time) {
     }
 
     @Override
@@ -0,0 +1,31 @@
+package net.yudichev.ntetris;
+
+/**
+ * A game whose simulation is stepped separately from drawing it, so that it can be simulated at a fixed rate whatever the
+ * frame rate, see {@link FixedTimestepGame}.
+ */
+public interface SimulatedGame extends Game {
+    /**
+     * Advances the simulation to the given time: processes the controls and moves everything that is due.
+     *
+     * @param gameTime see {@link GameTime}, never less than on the previous step
+     */
+    void step(long gameTime);
+
+    /**
+     * Draws the game as at the given time, which is normally between the last step and the next one, so that the moves
+     * of the last step are shown part way.
+     *
+     * @param gameTime see {@link GameTime}, never less than the time of the last step
+     */
+    void draw(long gameTime);
+
+    /**
+     * Steps and draws the game at the same time.
+     */
+    @Override
+    default void render(long gameTime) {
+        step(gameTime);
+        draw(gameTime);
+    }
+}
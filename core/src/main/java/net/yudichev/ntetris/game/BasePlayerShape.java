@@ -2,7 +2,6 @@ package net.yudichev.ntetris.game;
 
 import net.yudichev.ntetris.PublicImmutablesStyle;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -14,23 +13,8 @@ import static org.immutables.value.Value.Immutable;
 abstract class BasePlayerShape extends Shape<PlayerShape> {
 
     public final PlayerShape rotate() {
-        int newWidth = height();
-        int newHeight = width();
-        List<Row> newRows = new ArrayList<>(newHeight);
-        for (int newY = 0; newY < newHeight; newY++) {
-            newRows.add(Row.emptyRow(newWidth));
-        }
-        List<Row> oldRows = pattern().getRows();
-        for (int newX = 0; newX < newWidth; newX++) {
-            Row oldRow = oldRows.get(newX);
-            for (int newY = 0; newY < newHeight; newY++) {
-                newRows.get(newY).getElements()[newX] = oldRow.getElements()[newHeight - newY - 1];
-            }
-        }
-
-        int newOffsetX = offsetX() + (newHeight - newWidth) / 2;
-        int newOffsetY = offsetY() + (newWidth - newHeight) / 2;
-        return PlayerShape.of(RectangularPattern.pattern(newRows), newOffsetX, newOffsetY, speedX());
+        RectangularPattern pattern = pattern();
+        return PlayerShape.of(pattern.rotated(), offsetX() + pattern.rotationOffsetX(), offsetY() + pattern.rotationOffsetY(), speedX());
     }
 
     public final void toSingleBlockShapes(Consumer<RubbleShape> shapeConsumer) {
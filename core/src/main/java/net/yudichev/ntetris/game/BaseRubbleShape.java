@@ -24,13 +24,4 @@ abstract class BaseRubbleShape extends Shape<RubbleShape> {
     }
 
     public abstract Optional<Player> fallCausedBy();
-
-    public RubbleShape stop() {
-        return RubbleShape.builder()
-                .from(this)
-                .setSpeedX(0)
-                .setInvisibleWallX(-1)
-                .setFallCausedBy(Optional.empty())
-                .build();
-    }
 }
@@ -0,0 +1,78 @@
+package net.yudichev.ntetris.game;
+
+import java.util.Arrays;
+
+/**
+ * Per-row {@code long} records of a scene that {@link #fork() forks} share until one of them changes a row, at which
+ * point it gets its own copy of that row only.
+ * <p>
+ * A row is only ever written through {@link #writableRow(int)}, and rows are independent of each other, so different
+ * rows can be written concurrently.
+ */
+final class CopyOnWriteRows {
+    private final int rowLength;
+    private final long[][] rows;
+    // false if the row may be shared with a fork
+    private final boolean[] ownedRows;
+
+    CopyOnWriteRows(int rowCount, int rowLength) {
+        this.rowLength = rowLength;
+        rows = new long[rowCount][];
+        ownedRows = new boolean[rowCount];
+        for (int y = 0; y < rowCount; y++) {
+            rows[y] = new long[rowLength];
+            ownedRows[y] = true;
+        }
+    }
+
+    private CopyOnWriteRows(CopyOnWriteRows source) {
+        rowLength = source.rowLength;
+        rows = source.rows.clone();
+        ownedRows = new boolean[rows.length];
+    }
+
+    /**
+     * @return the row, which must not be changed
+     */
+    public long[] row(int y) {
+        return rows[y];
+    }
+
+    public long[] writableRow(int y) {
+        long[] row = rows[y];
+        if (!ownedRows[y]) {
+            row = row.clone();
+            rows[y] = row;
+            ownedRows[y] = true;
+        }
+        return row;
+    }
+
+    /**
+     * @return rows with the same content that share all the rows with this ones until either changes them
+     */
+    public CopyOnWriteRows fork() {
+        Arrays.fill(ownedRows, false);
+        return new CopyOnWriteRows(this);
+    }
+
+    public void clear() {
+        for (int y = 0; y < rows.length; y++) {
+            if (ownedRows[y]) {
+                Arrays.fill(rows[y], 0);
+            } else {
+                rows[y] = new long[rowLength];
+                ownedRows[y] = true;
+            }
+        }
+    }
+
+    /**
+     * Makes these rows share all the rows of another ones of the same size.
+     */
+    public void copyFrom(CopyOnWriteRows another) {
+        Arrays.fill(another.ownedRows, false);
+        System.arraycopy(another.rows, 0, rows, 0, rows.length);
+        Arrays.fill(ownedRows, false);
+    }
+}
@@ -4,39 +4,61 @@ import net.yudichev.ntetris.canvas.GameCanvas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
 
 final class EffectScene {
     private static final Logger logger = LoggerFactory.getLogger(EffectScene.class);
 
-    // leftmost row first, column indexes from top to bottom
-    private final CollapsingRubbleBlock[][] collapsingRubbleRows;
+    private final int height;
+    // only the blocks that are still alive, so that an idle scene costs nothing to render
+    private final List<CollapsingRubbleBlock> collapsingRubbleBlocks = new ArrayList<>();
     private final GameCanvas canvas;
 
-    EffectScene(int width, int height, GameCanvas canvas) {
+    EffectScene(int height, GameCanvas canvas) {
+        this.height = height;
         this.canvas = checkNotNull(canvas);
-        collapsingRubbleRows = new CollapsingRubbleBlock[width][height];
     }
 
-    public void collapseRubble(int colIdx, double gameTime) {
+    public void collapseRubble(int colIdx, long gameTime) {
         logger.debug("Col {} collapsed", colIdx);
-        for (int rowIdx = 0; rowIdx < collapsingRubbleRows[colIdx].length; rowIdx++) {
-            collapsingRubbleRows[colIdx][rowIdx] = new CollapsingRubbleBlock(canvas, colIdx, rowIdx, gameTime);
+        // the column's effect, if it is still running, starts over
+        removeBlocks(colIdx);
+        for (int rowIdx = 0; rowIdx < height; rowIdx++) {
+            collapsingRubbleBlocks.add(new CollapsingRubbleBlock(canvas, colIdx, rowIdx, gameTime));
+        }
+    }
+
+    public void render(long gameTime) {
+        int aliveCount = 0;
+        for (int i = 0; i < collapsingRubbleBlocks.size(); i++) {
+            CollapsingRubbleBlock collapsingRubbleBlock = collapsingRubbleBlocks.get(i);
+            collapsingRubbleBlock.onFrameStart(gameTime);
+            if (collapsingRubbleBlock.calculate()) {
+                collapsingRubbleBlocks.set(aliveCount++, collapsingRubbleBlock);
+            }
+            collapsingRubbleBlock.render(canvas, gameTime);
         }
+        truncateBlocks(aliveCount);
     }
 
-    public void render(double gameTime) {
-        for (int colIdx = 0; colIdx < collapsingRubbleRows.length; colIdx++) {
-            for (int rowIdx = 0; rowIdx < collapsingRubbleRows[colIdx].length; rowIdx++) {
-                CollapsingRubbleBlock collapsingRubbleBlock = collapsingRubbleRows[colIdx][rowIdx];
-                if (collapsingRubbleBlock != null) {
-                    collapsingRubbleBlock.onFrameStart(gameTime);
-                    if (!collapsingRubbleBlock.calculate()) {
-                        collapsingRubbleRows[colIdx][rowIdx] = null;
-                    }
-                    collapsingRubbleBlock.render(canvas);
-                }
+    private void removeBlocks(int colIdx) {
+        int keptCount = 0;
+        for (int i = 0; i < collapsingRubbleBlocks.size(); i++) {
+            CollapsingRubbleBlock collapsingRubbleBlock = collapsingRubbleBlocks.get(i);
+            if (collapsingRubbleBlock.colIdx() != colIdx) {
+                collapsingRubbleBlocks.set(keptCount++, collapsingRubbleBlock);
             }
         }
+        truncateBlocks(keptCount);
+    }
+
+    private void truncateBlocks(int size) {
+        // not via a sub-list, which is an allocation every frame
+        for (int i = collapsingRubbleBlocks.size() - 1; i >= size; i--) {
+            collapsingRubbleBlocks.remove(i);
+        }
     }
 }
@@ -0,0 +1,17 @@
+package net.yudichev.ntetris.game;
+
+/**
+ * How much the game engine verifies itself as it runs. Both modes play exactly the same game.
+ */
+public enum EngineMode {
+    /**
+     * Besides validating the arguments it is given, the engine verifies its own invariants, e.g. that rubble only
+     * appears in empty cells and that no shape overlaps rubble or another shape after every move. For tests and
+     * journal replays.
+     */
+    CHECKED,
+    /**
+     * The engine trusts its own invariants and only validates the arguments it is given.
+     */
+    PRODUCTION
+}
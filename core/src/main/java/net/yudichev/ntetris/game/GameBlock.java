@@ -6,53 +6,74 @@ import net.yudichev.ntetris.util.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static net.yudichev.ntetris.GameTime.NONE;
 import static net.yudichev.ntetris.game.GameConstants.DROP_TRANSITION_STEP_DURATION;
 import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
 
 abstract class GameBlock<S extends Shape<S>> {
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     private final Sprite sprite;
-    protected double lastMoveTime = Double.MIN_VALUE;
-    protected double timeSinceLastMove;
-    protected double gameTime;
+    protected long lastMoveTime = NONE;
+    protected long timeSinceLastMove;
+    protected long gameTime;
     @Nullable
     protected S sourceShapeWhenTransitioning;
 
-    protected GameBlock(Sprite sprite, double creationGameTime) {
+    protected GameBlock(Sprite sprite, long creationGameTime) {
         this.sprite = checkNotNull(sprite);
         onFrameStart(creationGameTime);
     }
 
-    @SuppressWarnings("FloatingPointEquality")
-    public final void onFrameStart(double gameTime) {
+    protected GameBlock(GameBlock<S> source) {
+        sprite = source.sprite;
+        lastMoveTime = source.lastMoveTime;
+        timeSinceLastMove = source.timeSinceLastMove;
+        gameTime = source.gameTime;
+        sourceShapeWhenTransitioning = source.sourceShapeWhenTransitioning;
+    }
+
+    public final void onFrameStart(long gameTime) {
         this.gameTime = gameTime;
-        if (lastMoveTime == Double.MIN_VALUE) {
+        if (lastMoveTime == NONE) {
             lastMoveTime = gameTime;
         }
         timeSinceLastMove = gameTime - lastMoveTime;
     }
 
-    public abstract void render(GameCanvas canvas);
+    /**
+     * @param renderTime see {@link GameEngine#render(GameCanvas, long)}
+     */
+    public abstract void render(GameCanvas canvas, long renderTime);
 
-    protected void renderShape(GameCanvas canvas, S destinationShape) {
-        double transitionProportion = timeSinceLastMove / DROP_TRANSITION_STEP_DURATION;
-        logger.trace("render {} src {} dest {}, proportion {}", sprite, sourceShapeWhenTransitioning, destinationShape, transitionProportion);
+    protected void renderShape(GameCanvas canvas, S destinationShape, long renderTime) {
+        double transitionProportion = Math.min(1.0, (double) (renderTime - lastMoveTime) / DROP_TRANSITION_STEP_DURATION);
+        // logging arguments are boxed, which must not happen every frame unless asked for
+        boolean trace = logger.isTraceEnabled();
+        if (trace) {
+            logger.trace("render {} src {} dest {}, proportion {}", sprite, sourceShapeWhenTransitioning, destinationShape, transitionProportion);
+        }
         for (int patternY = 0; patternY < destinationShape.height(); patternY++) {
-            Row row = destinationShape.pattern().getRows().get(patternY);
-            for (int patternX = 0; patternX < row.getElements().length; patternX++) {
-                if (row.getElements()[patternX]) {
+            long rowMask = destinationShape.pattern().rowMask(patternY);
+            for (int patternX = 0; patternX < destinationShape.width(); patternX++) {
+                if ((rowMask >>> patternX & 1) != 0) {
                     double targetAbsX = destinationShape.toAbsoluteX(patternX);
                     double targetAbsY = destinationShape.toAbsoluteY(patternY);
                     if (sourceShapeWhenTransitioning != null) {
-                        // extrapolate transition
+                        // interpolate between the shape before the last move and the shape now
                         int sourceAbsY = sourceShapeWhenTransitioning.toAbsoluteY(patternY);
                         int sourceAbsX = sourceShapeWhenTransitioning.toAbsoluteX(patternX);
-                        logger.trace("render {} trans from {}, {} -> {}, {}", sprite, sourceAbsX, sourceAbsY, targetAbsX, targetAbsY);
+                        if (trace) {
+                            logger.trace("render {} trans from {}, {} -> {}, {}", sprite, sourceAbsX, sourceAbsY, targetAbsX, targetAbsY);
+                        }
                         targetAbsX = sourceAbsX + (targetAbsX - sourceAbsX) * transitionProportion;
                         targetAbsY = sourceAbsY + (targetAbsY - sourceAbsY) * transitionProportion;
-                        logger.trace("render {} trans to {}, {}", sprite, targetAbsX, targetAbsY);
+                        if (trace) {
+                            logger.trace("render {} trans to {}, {}", sprite, targetAbsX, targetAbsY);
+                        }
+                    }
+                    if (trace) {
+                        logger.trace("render {} block {},{} at {}, {}", sprite, patternX, patternY, targetAbsX, targetAbsY);
                     }
-                    logger.trace("render {} block {},{} at {}, {}", sprite, patternX, patternY, targetAbsX, targetAbsY);
                     canvas.renderBlock(targetAbsX, targetAbsY, sprite, 1.0);
                 }
             }
@@ -1,10 +1,15 @@
 package net.yudichev.ntetris.game;
 
+import static net.yudichev.ntetris.GameTime.millis;
+
+/**
+ * Durations are in {@link net.yudichev.ntetris.GameTime} ticks.
+ */
 public final class GameConstants {
-    public static final double INITIAL_DROP_STEP_DURATION_PLAYER = 1200;
-    public static final double INITIAL_DROP_STEP_DURATION_RUBBLE = 200;
-    public static final double PLAYER_PENALTY_PAUSE = INITIAL_DROP_STEP_DURATION_PLAYER * 3;
-    public static final double DROP_TRANSITION_STEP_DURATION = 100;
+    public static final long INITIAL_DROP_STEP_DURATION_PLAYER = millis(1200);
+    public static final long INITIAL_DROP_STEP_DURATION_RUBBLE = millis(200);
+    public static final long PLAYER_PENALTY_PAUSE = INITIAL_DROP_STEP_DURATION_PLAYER * 3;
+    public static final long DROP_TRANSITION_STEP_DURATION = millis(100);
 
     private GameConstants() {
     }
@@ -0,0 +1,87 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.util.Nullable;
+
+import java.util.Map;
+
+/**
+ * What the game ({@link NTetris} and {@link PlayerBlock}) needs from the engine that keeps the scene: the rubble and
+ * the players' shapes, and the rules by which they move. {@link GameScene} is the reference engine; any other engine
+ * must play exactly the same game, which can be verified by running it in lockstep with the reference one.
+ */
+interface GameEngine {
+    int getWidth();
+
+    int getHeight();
+
+    void onFrameStart(long gameTime);
+
+    /**
+     * Moves all the rubble that is due to move by the current game time.
+     */
+    void moveRubble();
+
+    /**
+     * @param renderTime game time to show the scene at, no earlier than the last frame start; moves that are still in
+     *                   transition at that time are shown part way
+     */
+    void render(GameCanvas canvas, long renderTime);
+
+    void addRubbleColumnWithHole(int x, int holeIndex);
+
+    void initialiseRubbleFromPrettyPrint(long gameTime, String prettyPrint);
+
+    String prettyPrintRubble();
+
+    /**
+     * @return see {@link GameScene#stateHash()}; engines that play the same game must give the same hashes
+     */
+    long stateHash();
+
+    /**
+     * @return the player shape; the engine may return the same instance for the same arguments
+     */
+    PlayerShape playerShape(RectangularPattern pattern, int offsetX, int offsetY, int speedX);
+
+    /**
+     * @return false if the shape would overlap rubble or another player's shape
+     */
+    boolean attemptAddPlayerShape(Player player, PlayerShape shape);
+
+    /**
+     * Marks in {@code blockedOffsetsY}, a bit set of {@link #getHeight()} bits, the vertical offsets at which the player
+     * could not add a shape with the given pattern at the given horizontal offset, see
+     * {@link #attemptAddPlayerShape(Player, PlayerShape)}.
+     */
+    void markBlockedSpawnOffsetsY(Player player, RectangularPattern pattern, int offsetX, long[] blockedOffsetsY);
+
+    void movePlayerShapeVertically(Player player, int offsetY);
+
+    void rotatePlayersShape(Player player);
+
+    /**
+     * @return null if the player has no shape
+     */
+    @Nullable
+    ShapeLoweringResult dropShape(Player player);
+
+    /**
+     * @return null if the player has no shape
+     */
+    @Nullable
+    ShapeLoweringResult lowerShape(Player player);
+
+    void deletePlayerShape(Player player);
+
+    Map<Player, PlayerShape> getPlayerShapesByPlayer();
+
+    /**
+     * @return an engine in the same state that is independent of this one
+     */
+    GameEngine fork(GameEvents events);
+
+    enum ShapeLoweringResult {
+        LOWERED, LOWERED_WILL_BE_RUBBLE_SOON, BECAME_RUBBLE, REACHED_BOTTOM
+    }
+}
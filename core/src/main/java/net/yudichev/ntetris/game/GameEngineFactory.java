@@ -0,0 +1,16 @@
+package net.yudichev.ntetris.game;
+
+interface GameEngineFactory {
+    /**
+     * @param events where the engine records the events of the current step
+     */
+    GameEngine create(int width, int height, GameEvents events, EngineMode engineMode);
+
+    /**
+     * @return factory of the reference engine, {@link GameScene}
+     */
+    static GameEngineFactory reference(RubbleRowsExecutor rubbleRowsExecutor) {
+        return (width, height, events, engineMode) ->
+                new GameScene(width, height, events, rubbleRowsExecutor, engineMode);
+    }
+}
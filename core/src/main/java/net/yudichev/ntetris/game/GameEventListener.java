@@ -0,0 +1,18 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.util.Nullable;
+
+/**
+ * Is told about the events of a simulation step once the step is over, in the order they happened, see
+ * {@link NTetris#subscribe(GameEventListener)}. The next step waits for the listeners, so a listener that has slow
+ * work to do should hand the event over to be done elsewhere. A listener must not drive the simulation: an event
+ * recorded while the events are dispatched would be lost, so recording it fails.
+ */
+public interface GameEventListener {
+    /**
+     * @param gameTime game time of the step the event happened at
+     * @param player   whose shape the event is about, if any, see {@link GameEventType}
+     * @param value    see {@link GameEventType}
+     */
+    void onGameEvent(GameEventType type, long gameTime, @Nullable Player player, int value);
+}
@@ -0,0 +1,39 @@
+package net.yudichev.ntetris.game;
+
+/**
+ * What a {@link GameEventListener} is told about; the player and the value of an event depend on its type.
+ */
+public enum GameEventType {
+    /**
+     * A new shape of the player appeared.
+     */
+    SHAPE_SPAWNED,
+    /**
+     * The player's shape moved; the value is the number of steps it moved forward, 0 if it moved sideways.
+     */
+    SHAPE_MOVED,
+    /**
+     * The player's shape rotated to the next orientation of its pattern; the value is always 0.
+     */
+    SHAPE_ROTATED,
+    /**
+     * The player's shape became rubble.
+     */
+    BECAME_RUBBLE,
+    /**
+     * The player's shape reached the other side of the scene and disappeared.
+     */
+    REACHED_BOTTOM,
+    /**
+     * A full column of rubble collapsed; the value is the column, there is no player.
+     */
+    COLUMN_COLLAPSED,
+    /**
+     * The game got faster; the value is the speed in percent of the initial one, there is no player.
+     */
+    SPEED_UP,
+    /**
+     * There is no player.
+     */
+    GAME_OVER
+}
@@ -0,0 +1,99 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.util.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static net.yudichev.ntetris.util.Preconditions.checkState;
+
+/**
+ * Events of a simulation step, recorded as they happen and dispatched to the listeners in one batch once the step is
+ * over, so that the simulation is never in the middle of anything while a listener runs. The events are kept in
+ * parallel arrays that are reused from step to step, so recording an event does not allocate once the arrays have
+ * grown to the most events a step has had.
+ */
+final class GameEvents {
+    private static final int INITIAL_CAPACITY = 32;
+    private GameEventType[] types = new GameEventType[INITIAL_CAPACITY];
+    private long[] gameTimes = new long[INITIAL_CAPACITY];
+    private Player[] players = new Player[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean dispatching;
+
+    /**
+     * @throws IllegalStateException if the events are being dispatched, as the event would be forgotten along with them
+     */
+    public void add(GameEventType type, long gameTime, @Nullable Player player, int value) {
+        checkState(!dispatching, "event %s recorded while dispatching events", type);
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            gameTimes = Arrays.copyOf(gameTimes, capacity);
+            players = Arrays.copyOf(players, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[size] = type;
+        gameTimes[size] = gameTime;
+        players[size] = player;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public GameEventType type(int idx) {
+        return types[idx];
+    }
+
+    public long gameTime(int idx) {
+        return gameTimes[idx];
+    }
+
+    @Nullable
+    public Player player(int idx) {
+        return players[idx];
+    }
+
+    public int value(int idx) {
+        return values[idx];
+    }
+
+    /**
+     * Tells every listener about every event, in order, and then forgets the events. Listeners must not record
+     * events.
+     */
+    public void dispatchTo(List<GameEventListener> listeners) {
+        dispatching = true;
+        try {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).onGameEvent(types[i], gameTimes[i], players[i], values[i]);
+                }
+            }
+        } finally {
+            dispatching = false;
+        }
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(players, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(types[i]).append('@').append(gameTimes[i]).append(':').append(players[i]).append('=').append(values[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
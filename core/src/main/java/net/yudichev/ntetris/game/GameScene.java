@@ -1,19 +1,21 @@
 package net.yudichev.ntetris.game;
 
+import com.badlogic.gdx.utils.IntArray;
 import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
 import net.yudichev.ntetris.util.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.function.IntBinaryOperator;
-import java.util.function.IntPredicate;
-import java.util.function.IntUnaryOperator;
+import java.util.function.IntConsumer;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
-import static net.yudichev.ntetris.game.RubbleMoveResultFlags.withMoved;
-import static net.yudichev.ntetris.game.RubbleMoveResultFlags.withRequiresMoreMoves;
+import static net.yudichev.ntetris.game.GameConstants.DROP_TRANSITION_STEP_DURATION;
+import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_RUBBLE;
+import static net.yudichev.ntetris.game.RubbleMoveResultFlags.*;
+import static net.yudichev.ntetris.game.RubbleStore.NONE;
 import static net.yudichev.ntetris.util.Preconditions.*;
 
 /**
@@ -37,68 +39,156 @@ import static net.yudichev.ntetris.util.Preconditions.*;
  * y - shape rows, row 0 is highest
  * </pre>
  */
-final class GameScene {
+final class GameScene implements GameEngine {
     private static final Logger logger = LoggerFactory.getLogger(GameScene.class);
-    // top row first, column indexes from left to right
-    private final List<List<RubbleBlock>> rubbleRows;
+    private final RubbleStore rubble;
+    private final RubbleScheduler rubbleScheduler;
+    private final IntArray dueRubbleCells = new IntArray();
+    private final RubbleRowsExecutor rowsExecutor;
+    private final IntConsumer resolveRowGroup = this::resolveRowGroup;
+    private final int[] rowGroupStarts;
+    private final RowGroupOutcome[] rowGroupOutcomes;
     private final int width;
     private final int height;
-    private final RubbleLifecycleListener rubbleLifecycleListener;
+    // events of the current step
+    private final GameEvents events;
+    // see EngineMode.CHECKED
+    private final boolean checked;
+    private final PlayerShapeUniverse playerShapes;
     private final Map<Player, PlayerShape> playerShapesByPlayer = new EnumMap<>(Player.class);
     private final Map<Player, PlayerShape> unmodifiablePlayerShapesByPlayer = Collections.unmodifiableMap(playerShapesByPlayer);
-    private final int maxRubbleIterations;
+    private final boolean[] collapseCandidateCols;
+    private int collapseCandidateCount;
     private final boolean[] collapsedCols;
-    private double gameTime;
+    // XOR of the state keys of the player shapes
+    private long playerShapesHash;
+    private long gameTime;
 
-    GameScene(int width, int height, RubbleLifecycleListener rubbleLifecycleListener) {
+    GameScene(int width, int height, GameEvents events) {
+        this(width, height, events, SequentialRubbleRowsExecutor.INSTANCE);
+    }
+
+    GameScene(int width, int height, GameEvents events, RubbleRowsExecutor rowsExecutor) {
+        this(width, height, events, rowsExecutor, EngineMode.CHECKED);
+    }
+
+    GameScene(int width, int height, GameEvents events, RubbleRowsExecutor rowsExecutor, EngineMode engineMode) {
         this.width = width;
         this.height = height;
 
-        this.rubbleLifecycleListener = checkNotNull(rubbleLifecycleListener);
-        rubbleRows = new ArrayList<>(height);
-        for (int y = 0; y < height; y++) {
-            List<RubbleBlock> row = new ArrayList<>(width);
-            for (int x = 0; x < width; x++) {
-                row.add(null);
-            }
-            rubbleRows.add(row);
+        this.events = checkNotNull(events);
+        checked = engineMode == EngineMode.CHECKED;
+        this.rowsExecutor = checkNotNull(rowsExecutor);
+        int maxRowGroupCount = min(max(rowsExecutor.parallelism(), 1), height);
+        rowGroupStarts = new int[maxRowGroupCount + 1];
+        rowGroupOutcomes = new RowGroupOutcome[maxRowGroupCount];
+        for (int i = 0; i < maxRowGroupCount; i++) {
+            rowGroupOutcomes[i] = new RowGroupOutcome();
+        }
+        collapseCandidateCols = new boolean[width];
+        rubble = new RubbleStore(width, height, this::onColumnFullAndStationary);
+        rubbleScheduler = new RubbleScheduler(width, height);
+        collapsedCols = new boolean[width];
+        playerShapes = PlayerShapeUniverse.of(width, height);
+    }
+
+    private GameScene(GameScene source, GameEvents events) {
+        width = source.width;
+        height = source.height;
+        this.events = checkNotNull(events);
+        checked = source.checked;
+        rowsExecutor = source.rowsExecutor;
+        rowGroupStarts = new int[source.rowGroupStarts.length];
+        rowGroupOutcomes = new RowGroupOutcome[source.rowGroupOutcomes.length];
+        for (int i = 0; i < rowGroupOutcomes.length; i++) {
+            rowGroupOutcomes[i] = new RowGroupOutcome();
         }
-        maxRubbleIterations = width * height;
+        collapseCandidateCols = source.collapseCandidateCols.clone();
+        collapseCandidateCount = source.collapseCandidateCount;
+        rubble = source.rubble.fork(this::onColumnFullAndStationary);
+        rubbleScheduler = source.rubbleScheduler.fork();
         collapsedCols = new boolean[width];
+        // shared by all the scenes of the size, thread-safe, so forks used by other threads need no universe of their own
+        playerShapes = source.playerShapes;
+        playerShapesByPlayer.putAll(source.playerShapesByPlayer);
+        playerShapesHash = source.playerShapesHash;
+        gameTime = source.gameTime;
+    }
+
+    /**
+     * @return a scene in the same state that is independent of this one; the rubble is shared copy-on-write, so forking
+     * costs little more than copying the occupancy index
+     */
+    @Override
+    public GameScene fork(GameEvents events) {
+        return new GameScene(this, events);
     }
 
+    @Override
     public void addRubbleColumnWithHole(int x, int holeIndex) {
         for (int y = 0; y < height; y++) {
             if (y != holeIndex) {
-                RubbleShape shape = RubbleShape.of(x, y, 0);
-                rubbleRows.get(y).set(x, new RubbleBlock(this, shape, gameTime));
+                rubble.add(x, y, gameTime);
             }
         }
     }
 
+    /**
+     * @return the interned player shape, see {@link PlayerShapeUniverse}
+     */
+    @Override
+    public PlayerShape playerShape(RectangularPattern pattern, int offsetX, int offsetY, int speedX) {
+        return playerShapes.shape(pattern, offsetX, offsetY, speedX);
+    }
+
+    @Override
     public boolean attemptAddPlayerShape(Player player, PlayerShape shape) {
+        shape = playerShapes.intern(shape);
         if (overlapsWithRubble(shape)) {
             return false;
         }
 
         for (Player anotherPlayer : Player.ALL_PLAYERS) {
             PlayerShape anotherShape = playerShapesByPlayer.get(anotherPlayer);
-            if (anotherShape != null && anotherShape != shape) {
+            if (anotherShape != null && anotherPlayer != player) {
                 if (shape.overlapsWith(anotherShape)) {
                     return false;
                 }
             }
         }
-        checkArgument(playerShapesByPlayer.put(player, shape) == null, "player %s already has a shape", player);
+        checkArgument(putPlayerShape(player, shape) == null, "player %s already has a shape", player);
+        events.add(GameEventType.SHAPE_SPAWNED, gameTime, player, 0);
         return true;
     }
 
+    /**
+     * Marks in {@code blockedOffsetsY}, a bit set of {@link #getHeight()} bits, the vertical offsets at which the player
+     * could not add a shape with the given pattern at the given horizontal offset, see
+     * {@link #attemptAddPlayerShape(Player, PlayerShape)}.
+     */
+    @Override
+    public void markBlockedSpawnOffsetsY(Player player, RectangularPattern pattern, int offsetX, long[] blockedOffsetsY) {
+        rubble.markBlockedOffsetsY(pattern, offsetX, blockedOffsetsY);
+        for (Player anotherPlayer : Player.ALL_PLAYERS) {
+            PlayerShape anotherShape = playerShapesByPlayer.get(anotherPlayer);
+            if (anotherShape != null && anotherPlayer != player) {
+                int toOffsetY = min(height - pattern.height() + 1, anotherShape.offsetY() + anotherShape.height());
+                for (int offsetY = max(0, anotherShape.offsetY() - pattern.height() + 1); offsetY < toOffsetY; offsetY++) {
+                    if (Shape.overlaps(pattern, offsetX, offsetY, anotherShape.pattern(), anotherShape.offsetX(), anotherShape.offsetY())) {
+                        blockedOffsetsY[offsetY >>> 6] |= 1L << offsetY;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
     public void movePlayerShapeVertically(Player player, int offsetY) {
         PlayerShape playerShape = playerShapesByPlayer.get(player);
         if (playerShape != null) {
             int newOffsetY = playerShape.offsetY() + offsetY;
             if (newOffsetY >= 0 && newOffsetY + playerShape.height() <= height) {
-                PlayerShape candidateShape = playerShape.withOffsetY(newOffsetY);
+                PlayerShape candidateShape = playerShapes.shape(playerShape.pattern(), playerShape.offsetX(), newOffsetY, playerShape.speedX());
                 if (!overlapsWithRubble(candidateShape)) {
                     for (Player anotherPlayer : Player.ALL_PLAYERS) {
                         if (anotherPlayer != player) {
@@ -110,125 +200,202 @@ final class GameScene {
                             }
                         }
                     }
-                    playerShapesByPlayer.put(player, candidateShape);
+                    putPlayerShape(player, candidateShape);
+                    events.add(GameEventType.SHAPE_MOVED, gameTime, player, 0);
                 }
             }
         }
     }
 
+    @Override
     @Nullable
     public ShapeLoweringResult dropShape(Player player) {
-        PlayerShape shape;
-        while ((shape = playerShapesByPlayer.get(player)) != null) {
-            ShapeLoweringResult shapeLoweringResult = lowerShape(player, shape);
-            logger.debug("Player {} lower result {}", player, shapeLoweringResult);
-            if (shapeLoweringResult == ShapeLoweringResult.LOWERED_WILL_BE_RUBBLE_SOON || shapeLoweringResult != ShapeLoweringResult.LOWERED) {
-                return shapeLoweringResult;
-            }
+        PlayerShape shape = playerShapesByPlayer.get(player);
+        if (shape == null) {
+            return null;
         }
-        return null;
+        ShapeLoweringResult shapeLoweringResult = dropShape(player, shape);
+        logger.debug("Player {} drop result {}", player, shapeLoweringResult);
+        return shapeLoweringResult;
     }
 
+    @Override
     public Map<Player, PlayerShape> getPlayerShapesByPlayer() {
         return unmodifiablePlayerShapesByPlayer;
     }
 
+    @Override
     @Nullable
     public ShapeLoweringResult lowerShape(Player player) {
         PlayerShape shapeDrop = playerShapesByPlayer.get(player);
         return shapeDrop == null ? null : lowerShape(player, shapeDrop);
     }
 
+    @Override
     public void deletePlayerShape(Player player) {
-        playerShapesByPlayer.remove(player);
+        removePlayerShape(player);
+    }
+
+    /**
+     * @return 64-bit hash of the positions and motion of everything in the scene, equal for scenes in which the game
+     * goes on the same way no matter how they got there; updated as the scene changes, so getting it takes a look at
+     * each non-empty row at most. Times are not part of it.
+     */
+    @Override
+    public long stateHash() {
+        return rubble.stateHash() ^ playerShapesHash;
     }
 
+    @Override
     public int getWidth() {
         return width;
     }
 
+    @Override
     public int getHeight() {
         return height;
     }
 
     /**
-     * @return true if the shape moved
+     * Makes one step of the rubble block at the given position.
+     *
+     * @return see {@link RubbleMoveResultFlags}
      */
-    public int moveRubble(RubbleShape shape) {
+    private int moveRubble(int x, int y, RowGroupOutcome outcome) {
+        int speedX = rubble.speedX(x, y);
+        if (speedX == 0) {
+            return 0;
+        }
+        // logging arguments are boxed, which must not happen on every move unless asked for
+        boolean debug = logger.isDebugEnabled();
         int result = 0;
-        RubbleShape newShape = shape;
-        if (shape.speedX() != 0) {
-            int candidateX = shape.offsetX() + shape.speedX();
-            if (shape.invisibleWallX() == candidateX) {
-                // overlaps with invisible wall
-                logger.debug("{} hit invisible wall {}, stopped", shape, candidateX);
-                newShape = shape.stop();
+        boolean stop = false;
+        int candidateX = x + speedX;
+        if (rubble.invisibleWallX(x, y) == candidateX) {
+            // overlaps with invisible wall
+            if (debug) {
+                logger.debug("{}:{} hit invisible wall {}, stopped", x, y, candidateX);
+            }
+            stop = true;
+        } else if (rubble.isOccupied(candidateX, y)) {
+            if (Integer.signum(speedX) == Integer.signum(rubble.speedX(candidateX, y))) {
+                result = withRequiresMoreMoves(result);
+                if (debug) {
+                    logger.debug("{}:{} moving in same dir as rubble at {}, another calc needed", x, y, candidateX);
+                }
             } else {
-                RubbleBlock rubbleBlock = rubbleRows.get(shape.offsetY()).get(candidateX);
-                if (rubbleBlock != null) {
-                    RubbleShape overlappingRubble = rubbleBlock.getShape();
-                    if (movingInSameDirection(shape, overlappingRubble)) {
-                        result = withRequiresMoreMoves(result);
-                        logger.debug("{} moving in same dir as rubble {}, another calc needed", shape, overlappingRubble);
-                    } else {
-                        logger.debug("{} hit rubble {}, stopped", shape, overlappingRubble);
-                        newShape = shape.stop();
+                if (debug) {
+                    logger.debug("{}:{} hit rubble at {}, stopped", x, y, candidateX);
+                }
+                stop = true;
+            }
+        } else {
+            PlayerShape overlappingPlayerShape = playerShapeWithElementAt(candidateX, y, speedX);
+            if (overlappingPlayerShape != null) {
+                if (Integer.signum(speedX) == Integer.signum(overlappingPlayerShape.speedX())) {
+                    result = withRequiresMoreMoves(result);
+                    if (debug) {
+                        logger.debug("{}:{} moving in same dir as player {}, another calc needed", x, y, overlappingPlayerShape);
                     }
                 } else {
-                    PlayerShape overlappingPlayerShape = playerShapeWithElementAt(candidateX, shape.offsetY(), shape.speedX());
-                    if (overlappingPlayerShape != null) {
-                        if (movingInSameDirection(shape, overlappingPlayerShape)) {
-                            result = withRequiresMoreMoves(result);
-                            logger.debug("{} moving in same dir as player {}, another calc needed", shape, overlappingPlayerShape);
-                        } else {
-                            logger.debug("{} hit player {}, stopped", shape, overlappingPlayerShape);
-                            newShape = shape.stop();
-                        }
-                    } else {
-                        // move the shape
-                        newShape = shape.withOffsetX(candidateX);
-                        logger.debug("{} moved to {}", shape, newShape);
+                    if (debug) {
+                        logger.debug("{}:{} hit player {}, stopped", x, y, overlappingPlayerShape);
                     }
+                    stop = true;
                 }
+            } else {
+                if (debug) {
+                    logger.debug("{}:{} moved to {}", x, y, candidateX);
+                }
+                rubble.moveInRow(x, candidateX, y);
+                outcome.movedCells.add(cellOf(x, y));
+                outcome.movedCells.add(cellOf(candidateX, y));
+                result = withMoved(result);
             }
         }
-        if (newShape != shape) {
-            result = withMoved(result);
+        if (stop) {
+            rubble.stopInRow(x, y);
+            outcome.stoppedCells.add(cellOf(x, y));
+            result = withStopped(withMoved(result));
+        }
+        return result;
+    }
 
-            logger.debug("Clear1 {}", shape);
-            RubbleBlock block = rubbleRows.get(shape.offsetY()).set(shape.offsetX(), null);
-            checkState(block.getShape() == shape, "expected %s but was %s", shape, block);
+    /**
+     * Makes all the steps the moving rubble block in the given cell is due and, if it is still moving, records it to be
+     * scheduled for its next step. A block that is held up by something moving the same way keeps its last move time
+     * and is retried on the next frame.
+     */
+    private void moveRubbleBlock(int cell, RowGroupOutcome outcome) {
+        int x = cell % width;
+        int y = cell / width;
+        // the block may have collapsed since it was scheduled
+        if (!rubble.isOccupied(x, y) || rubble.speedX(x, y) == 0) {
+            return;
+        }
+        long outstandingDropSteps = (gameTime - rubble.lastMoveTime(x, y)) / INITIAL_DROP_STEP_DURATION_RUBBLE;
+        if (outstandingDropSteps <= 0) {
+            outcome.cellsToSchedule.add(cell);
+            return;
+        }
+        boolean requiresMoreMoves;
+        int blockX = x;
+        do {
+            int speedX = rubble.speedX(blockX, y);
+            int result = moveRubble(blockX, y, outcome);
+            requiresMoreMoves = requiresMoreMoves(result);
+            if (isMoved(result) && !isStopped(result)) {
+                blockX += speedX;
+            }
+        } while (!requiresMoreMoves && --outstandingDropSteps > 0);
+        if (requiresMoreMoves) {
+            outcome.cellsToSchedule.add(cellOf(blockX, y));
+        } else {
+            rubble.setLastMoveTime(blockX, y, gameTime);
+            rubble.setTransitionSourceX(blockX, y, x);
+            if (rubble.speedX(blockX, y) != 0) {
+                outcome.cellsToSchedule.add(cellOf(blockX, y));
+            }
+        }
+    }
 
-            logger.debug("Set1 {}", newShape);
-            block.transitionTo(newShape);
-            checkState(rubbleRows.get(newShape.offsetY()).set(newShape.offsetX(), block) == null);
+    private boolean isMovingRight(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        return rubble.isOccupied(x, y) && rubble.speedX(x, y) > 0;
+    }
 
-            int newShapePosition = newShape.offsetX();
-            newShape.fallCausedBy().ifPresent(player -> maybeCollapseRubble(player, newShapePosition, 1));
-        }
-        return result;
+    private int cellOf(int x, int y) {
+        return y * width + x;
     }
 
+    @Override
     public void rotatePlayersShape(Player player) {
         PlayerShape shape = playerShapesByPlayer.get(player);
         if (shape != null) {
-            PlayerShape candidateShape = shape.rotate();
-            if (!crossesSceneBoundary(candidateShape) && !overlapsWithAnotherPlayersShape(candidateShape, player) && !overlapsWithRubble(candidateShape)) {
-                playerShapesByPlayer.put(player, candidateShape);
+            RectangularPattern pattern = shape.pattern();
+            RectangularPattern rotatedPattern = pattern.rotated();
+            int offsetX = shape.offsetX() + pattern.rotationOffsetX();
+            int offsetY = shape.offsetY() + pattern.rotationOffsetY();
+            if (playerShapes.fitsScene(rotatedPattern, offsetX, offsetY)) {
+                PlayerShape candidateShape = playerShapes.shape(rotatedPattern, offsetX, offsetY, shape.speedX());
+                if (!overlapsWithAnotherPlayersShape(candidateShape, player) && !overlapsWithRubble(candidateShape)) {
+                    putPlayerShape(player, candidateShape);
+                    events.add(GameEventType.SHAPE_ROTATED, gameTime, player, 0);
+                }
             }
         }
     }
 
-    @SuppressWarnings("BooleanMethodIsAlwaysInverted") // easier to read this way
-    private static boolean movingInSameDirection(Shape<?> shape1, Shape<?> shape2) {
-        return Integer.signum(shape1.speedX()) == Integer.signum(shape2.speedX());
-    }
-
     @Nullable
     private PlayerShape playerShapeWithElementAt(int horizontalOffset, int verticalOffset, int friendlySpeed) {
-        checkArgument(friendlySpeed != 0);
-        for (PlayerShape playerShape : playerShapesByPlayer.values()) {
-            if (playerShape.hasElementAtAbsoluteCoordinates(verticalOffset, horizontalOffset)) {
+        if (checked) {
+            checkArgument(friendlySpeed != 0);
+        }
+        // not via the values, whose iterator is an allocation on every move of the rubble
+        for (Player player : Player.ALL_PLAYERS) {
+            PlayerShape playerShape = playerShapesByPlayer.get(player);
+            if (playerShape != null && playerShape.hasElementAtAbsoluteCoordinates(verticalOffset, horizontalOffset)) {
                 return playerShape;
             }
         }
@@ -236,24 +403,86 @@ final class GameScene {
     }
 
     private boolean overlapsWithRubble(Shape<?> shape) {
-        for (int absY = shape.offsetY(); absY < shape.offsetY() + shape.height(); absY++) {
-            List<RubbleBlock> rubbleRow = rubbleRows.get(absY);
-            for (int absX = shape.offsetX(); absX < shape.offsetX() + shape.width(); absX++) {
-                RubbleBlock rubbleBlock = rubbleRow.get(absX);
-                if (rubbleBlock != null) {
-                    RubbleShape rubbleShape = rubbleBlock.getShape();
-                    // optimisation: knowing rubble shape is a single block, can be simple
-                    if (rubbleShape != null && shape.pattern().hasElementAt(absX - shape.offsetX(), absY - shape.offsetY())) {
-                        return true;
+        return rubble.overlaps(shape.pattern(), shape.offsetX(), shape.offsetY());
+    }
+
+    /**
+     * Sets the rubble block moving; a block that was stationary starts its step clock now.
+     */
+    private void startRubbleMotion(int x, int y, int speedX, int invisibleWallX, Player fallCausedBy) {
+        boolean wasStationary = rubble.speedX(x, y) == 0;
+        rubble.setMotion(x, y, speedX, invisibleWallX, fallCausedBy);
+        if (wasStationary) {
+            rubble.setLastMoveTime(x, y, gameTime);
+            // the block has not moved yet, whatever transition it was in before it stopped is over
+            rubble.setTransitionSourceX(x, y, NONE);
+            rubbleScheduler.schedule(cellOf(x, y), gameTime);
+        }
+    }
+
+    /**
+     * Same as lowering the shape step by step for as long as it is {@link ShapeLoweringResult#LOWERED}, but finds where it
+     * lands in one go: the free distance to the rubble, to other players' shapes and to the edge, whichever is nearest.
+     */
+    private ShapeLoweringResult dropShape(Player player, PlayerShape shape) {
+        int speedX = shape.speedX();
+        int stepsToEdge = speedX > 0 ? width - shape.offsetX() - shape.width() : shape.offsetX();
+        int freeSteps = min(rubble.freeDistance(shape.pattern(), shape.offsetX(), shape.offsetY(), speedX), stepsToEdge);
+        for (Player anotherPlayer : Player.ALL_PLAYERS) {
+            if (anotherPlayer != player) {
+                PlayerShape anotherShape = playerShapesByPlayer.get(anotherPlayer);
+                if (anotherShape != null) {
+                    int stepsToAnotherShape = stepsUntilOverlapping(shape, anotherShape, freeSteps + 1);
+                    if (stepsToAnotherShape == 1) {
+                        convertToRubble(player, "collapsed with another player when lowering");
+                        convertToRubble(anotherPlayer, "collapsed with another player that was lowering");
                     }
+                    freeSteps = min(freeSteps, stepsToAnotherShape - 1);
                 }
             }
         }
-        return false;
+        if (!playerShapesByPlayer.containsKey(player)) {
+            return ShapeLoweringResult.BECAME_RUBBLE;
+        }
+        if (freeSteps == 0) {
+            convertToRubble(player, "collapsed with rubble");
+            return ShapeLoweringResult.BECAME_RUBBLE;
+        }
+        if (freeSteps >= stepsToEdge) {
+            removePlayerShape(player);
+            events.add(GameEventType.REACHED_BOTTOM, gameTime, player, 0);
+            return ShapeLoweringResult.REACHED_BOTTOM;
+        }
+        putPlayerShape(player, playerShapes.shape(shape.pattern(), shape.offsetX() + freeSteps * speedX, shape.offsetY(), speedX));
+        events.add(GameEventType.SHAPE_MOVED, gameTime, player, freeSteps);
+        return ShapeLoweringResult.LOWERED_WILL_BE_RUBBLE_SOON;
+    }
+
+    /**
+     * @return the least number of steps, up to {@code maxSteps}, after which the moving shape overlaps another shape, or
+     * {@link Integer#MAX_VALUE} if it does not
+     */
+    private static int stepsUntilOverlapping(PlayerShape shape, PlayerShape anotherShape, int maxSteps) {
+        // only the steps that make the shapes' columns intersect are examined
+        int firstSteps;
+        int lastSteps;
+        if (shape.speedX() > 0) {
+            firstSteps = anotherShape.offsetX() - shape.width() + 1 - shape.offsetX();
+            lastSteps = anotherShape.offsetX() + anotherShape.width() - 1 - shape.offsetX();
+        } else {
+            firstSteps = shape.offsetX() - (anotherShape.offsetX() + anotherShape.width() - 1);
+            lastSteps = shape.offsetX() - (anotherShape.offsetX() - shape.width() + 1);
+        }
+        for (int steps = max(firstSteps, 1); steps <= min(lastSteps, maxSteps); steps++) {
+            if (shape.overlapsWithAt(shape.offsetX() + steps * shape.speedX(), anotherShape)) {
+                return steps;
+            }
+        }
+        return Integer.MAX_VALUE;
     }
 
     private ShapeLoweringResult lowerShape(Player player, PlayerShape shape) {
-        PlayerShape movedShape = shape.move();
+        PlayerShape movedShape = moved(shape);
         // are we touching another shape in the direction of our movement?
         for (Player anotherPlayer : Player.ALL_PLAYERS) {
             if (anotherPlayer != player) {
@@ -277,13 +506,15 @@ final class GameScene {
         // if we are still not rubble, check if we reached the edge
         if (playerShapesByPlayer.containsKey(player)) {
             if (movedShape.touchingVerticalEdge(width)) {
-                playerShapesByPlayer.remove(player);
+                removePlayerShape(player);
+                events.add(GameEventType.REACHED_BOTTOM, gameTime, player, 0);
                 return ShapeLoweringResult.REACHED_BOTTOM;
             }
-            playerShapesByPlayer.put(player, movedShape);
+            putPlayerShape(player, movedShape);
+            events.add(GameEventType.SHAPE_MOVED, gameTime, player, 1);
 
             // check if we will be rubble on the next step
-            PlayerShape shapeMovedTwice = movedShape.move();
+            PlayerShape shapeMovedTwice = moved(movedShape);
             if (overlapsWithAnotherPlayersShape(shapeMovedTwice, player) || overlapsWithRubble(shapeMovedTwice)) {
                 return ShapeLoweringResult.LOWERED_WILL_BE_RUBBLE_SOON;
             }
@@ -294,104 +525,156 @@ final class GameScene {
         return ShapeLoweringResult.BECAME_RUBBLE;
     }
 
+    private PlayerShape moved(PlayerShape shape) {
+        return playerShapes.shape(shape.pattern(), shape.offsetX() + shape.speedX(), shape.offsetY(), shape.speedX());
+    }
+
     private void convertToRubble(Player player, String reason) {
-        PlayerShape playerShape = playerShapesByPlayer.remove(player);
+        PlayerShape playerShape = removePlayerShape(player);
         if (playerShape != null) {
-            playerShape.toSingleBlockShapes(shape -> {
-                logger.debug("Set2 {}", shape);
-                RubbleBlock newRubbleBlock = new RubbleBlock(this, shape, gameTime);
-                newRubbleBlock.onFrameStart(gameTime); // must initialise with current game time
-                checkState(rubbleRows.get(shape.offsetY()).set(shape.offsetX(), newRubbleBlock) == null);
-            });
-            logger.debug("player {} shape {} converted to rubble because {}", player, playerShape, reason);
+            RectangularPattern pattern = playerShape.pattern();
+            // logging arguments are boxed, which must not happen on every landing unless asked for
+            boolean debug = logger.isDebugEnabled();
+            for (int patternY = 0; patternY < pattern.height(); patternY++) {
+                for (int patternX = 0; patternX < pattern.width(); patternX++) {
+                    if (pattern.hasElementAt(patternX, patternY)) {
+                        int x = playerShape.toAbsoluteX(patternX);
+                        int y = playerShape.toAbsoluteY(patternY);
+                        if (debug) {
+                            logger.debug("Set2 {}:{}", x, y);
+                        }
+                        if (checked) {
+                            checkState(!rubble.isOccupied(x, y), "player shape converted over rubble at %s:%s", x, y);
+                        }
+                        rubble.add(x, y, gameTime);
+                    }
+                }
+            }
+            if (debug) {
+                logger.debug("player {} shape {} converted to rubble because {}", player, playerShape, reason);
+            }
+            events.add(GameEventType.BECAME_RUBBLE, gameTime, player, 0);
             maybeCollapseRubble(player, playerShape.offsetX(), playerShape.pattern().width());
         }
     }
 
+    @Nullable
+    private PlayerShape putPlayerShape(Player player, PlayerShape shape) {
+        if (checked) {
+            checkPlacement(player, shape);
+        }
+        PlayerShape previousShape = removePlayerShape(player);
+        playerShapesByPlayer.put(player, shape);
+        playerShapesHash ^= StateHash.playerShape(player, shape);
+        return previousShape;
+    }
+
+    @Nullable
+    private PlayerShape removePlayerShape(Player player) {
+        PlayerShape shape = playerShapesByPlayer.remove(player);
+        if (shape != null) {
+            playerShapesHash ^= StateHash.playerShape(player, shape);
+        }
+        return shape;
+    }
+
+    private void checkPlacement(Player player, PlayerShape shape) {
+        checkState(!overlapsWithRubble(shape), "player %s shape %s overlaps rubble", player, shape);
+        checkState(!overlapsWithAnotherPlayersShape(shape, player), "player %s shape %s overlaps another player's shape", player, shape);
+    }
+
+    private void onColumnFullAndStationary(int x) {
+        if (!collapseCandidateCols[x]) {
+            collapseCandidateCols[x] = true;
+            collapseCandidateCount++;
+        }
+    }
+
     private void maybeCollapseRubble(Player player, int startingX, int width) {
-        int startX;
-        IntPredicate collapseRangeCondition;
-        IntPredicate withinSceneCondition;
-        IntUnaryOperator loopStep;
-        IntBinaryOperator offsetDiff;
-        int rubbleDropSpeed;
+        if (collapseCandidateCount == 0) {
+            return;
+        }
+        Arrays.fill(collapsedCols, false);
         switch (player) {
             case LEFT:
-                startX = startingX + width - 1;
-                collapseRangeCondition = x -> x >= startingX;
-                withinSceneCondition = x -> x >= 0;
-                loopStep = x -> x - 1;
-                offsetDiff = Integer::sum;
-                rubbleDropSpeed = 1;
+                collapseLeftPlayerColumns(startingX, startingX + width);
                 break;
             case RIGHT:
-                startX = startingX;
-                collapseRangeCondition = x -> x < startingX + width;
-                withinSceneCondition = x -> x < this.width;
-                loopStep = x -> x + 1;
-                offsetDiff = (offset, diff) -> offset - diff;
-                rubbleDropSpeed = -1;
+                collapseRightPlayerColumns(startingX, startingX + width);
                 break;
             default:
                 throw new IllegalStateException("invalid player " + player);
         }
+    }
 
+    /**
+     * Left player's rubble falls to the right: complete columns in the range are collapsed right to left, then
+     * everything to the left of the first collapsed column falls, no deeper than the collapsed columns it has to fill.
+     * The depth is a running count of the collapsed columns passed, so each column's invisible wall is found in O(1).
+     */
+    private void collapseLeftPlayerColumns(int fromX, int toX) {
         int firstCollapsedX = -1;
-        Arrays.fill(collapsedCols, false);
-        for (int x = startX; collapseRangeCondition.test(x); x = loopStep.applyAsInt(x)) {
-            boolean columnFull = true;
-            for (int y = 0; y < height; y++) {
-                RubbleBlock block = rubbleRows.get(y).get(x);
-                if (block == null || block.getShape().speedX() != 0) { // cannot collapse if the rubble is still moving
-                    columnFull = false;
-                    break;
-                }
-            }
-            if (columnFull) {
-                logger.debug("Collapsed rubble column {}", x);
+        for (int x = toX - 1; x >= fromX; x--) {
+            if (collapseColumn(x)) {
                 if (firstCollapsedX < 0) {
                     firstCollapsedX = x;
                 }
-                collapsedCols[x] = true;
+            }
+        }
+        int noOfRelevantCollapsedCols = 0;
+        for (int x = firstCollapsedX - 1; x >= 0; x--) {
+            if (collapsedCols[x + 1]) {
+                noOfRelevantCollapsedCols++;
+            }
+            startRubbleColumnMotion(x, 1, min(x + noOfRelevantCollapsedCols + 1, width - 1), Player.LEFT);
+        }
+    }
 
-                rubbleLifecycleListener.onRubbleColumnCollapsed(gameTime, x);
-                for (int y = 0; y < height; y++) {
-                    logger.debug("Clear2 at {}:{}", x, y);
-                    rubbleRows.get(y).set(x, null);
+    /**
+     * Mirror image of {@link #collapseLeftPlayerColumns(int, int)}.
+     */
+    private void collapseRightPlayerColumns(int fromX, int toX) {
+        int firstCollapsedX = width;
+        for (int x = fromX; x < toX; x++) {
+            if (collapseColumn(x)) {
+                if (firstCollapsedX == width) {
+                    firstCollapsedX = x;
                 }
             }
         }
+        int noOfRelevantCollapsedCols = 0;
+        for (int x = firstCollapsedX + 1; x < width; x++) {
+            if (collapsedCols[x - 1]) {
+                noOfRelevantCollapsedCols++;
+            }
+            startRubbleColumnMotion(x, -1, max(x - noOfRelevantCollapsedCols - 1, 0), Player.RIGHT);
+        }
+    }
 
-        // mark all the rubble beyond the fist collapsed column as falling, carefully choosing invisible wall
-        if (firstCollapsedX >= 0) {
-            for (int y = 0; y < height; y++) {
-                List<RubbleBlock> row = rubbleRows.get(y);
-                // starting from the column next to the first collapsed one until the edge of the scene
-                for (int x = loopStep.applyAsInt(firstCollapsedX); withinSceneCondition.test(x); x = loopStep.applyAsInt(x)) {
-                    RubbleBlock block = row.get(x);
-                    if (block != null) {
-                        RubbleShape oldShape = block.getShape();
-
-                        int noOfRelevantCollapsedCols = 0;
-                        for (int ix = firstCollapsedX; ix != x; ix = loopStep.applyAsInt(ix)) {
-                            if (collapsedCols[ix]) {
-                                noOfRelevantCollapsedCols++;
-                            }
-                        }
+    private boolean collapseColumn(int x) {
+        if (!collapseCandidateCols[x]) {
+            return false;
+        }
+        collapseCandidateCols[x] = false;
+        collapseCandidateCount--;
+        // some of the rubble may have started moving since the column became full
+        if (!rubble.isColumnFullAndStationary(x)) {
+            return false;
+        }
+        logger.debug("Collapsed rubble column {}", x);
+        collapsedCols[x] = true;
+        events.add(GameEventType.COLUMN_COLLAPSED, gameTime, null, x);
+        for (int y = 0; y < height; y++) {
+            logger.debug("Clear2 at {}:{}", x, y);
+            rubble.clear(x, y);
+        }
+        return true;
+    }
 
-                        if (noOfRelevantCollapsedCols > 0) {
-                            RubbleShape newShape = RubbleShape.builder().from(oldShape)
-                                    .setSpeedX(rubbleDropSpeed)
-                                    // drop no deeper than the first collapsed column
-                                    .setInvisibleWallX(max(0, min(offsetDiff.applyAsInt(oldShape.offsetX(), noOfRelevantCollapsedCols + 1), this.width - 1)))
-                                    .setFallCausedBy(player)
-                                    .build();
-                            if (!newShape.equals(oldShape)) {
-                                block.transitionTo(newShape);
-                            }
-                        }
-                    }
-                }
+    private void startRubbleColumnMotion(int x, int speedX, int invisibleWallX, Player fallCausedBy) {
+        for (int y = 0; y < height; y++) {
+            if (rubble.isOccupied(x, y)) {
+                startRubbleMotion(x, y, speedX, invisibleWallX, fallCausedBy);
             }
         }
     }
@@ -410,27 +693,21 @@ final class GameScene {
         return false;
     }
 
-    private boolean crossesSceneBoundary(Shape<?> shape) {
-        return shape.offsetX() < 0 || shape.offsetX() + shape.width() > width
-                || shape.offsetY() < 0 || shape.offsetY() + shape.height() > height;
-    }
-
+    @Override
     @SuppressWarnings("DefaultLocale")
     public String prettyPrintRubble() {
         StringBuilder sb = new StringBuilder(5 * width * height + 2 * height);
         for (int y = 0; y < height; y++) {
             sb.append("\n");
-            List<RubbleBlock> row = rubbleRows.get(y);
             for (int x = 0; x < width; x++) {
-                RubbleBlock block = row.get(x);
-                if (block == null) {
+                if (!rubble.isOccupied(x, y)) {
                     sb.append("[   ]");
                 } else {
-                    RubbleShape shape = block.getShape();
-                    if (shape.speedX() == 0) {
+                    int speedX = rubble.speedX(x, y);
+                    if (speedX == 0) {
                         sb.append("[ O ]");
                     } else {
-                        sb.append('[').append(shape.speedX() < 0 ? '<' : '>').append(String.format("%02d", shape.invisibleWallX())).append(']');
+                        sb.append('[').append(speedX < 0 ? '<' : '>').append(String.format("%02d", rubble.invisibleWallX(x, y))).append(']');
                     }
                 }
             }
@@ -439,79 +716,178 @@ final class GameScene {
         return sb.toString();
     }
 
-    public void initialiseRubbleFromPrettyPrint(double gameTime, String prettyPrint) {
+    /**
+     * @return a copy of the whole occupancy index of the rubble, which {@link #prettyPrintRubble()} does not show all of
+     */
+    long[] copyOfRubbleIndex() {
+        return rubble.copyOfIndex();
+    }
+
+    @Override
+    public void initialiseRubbleFromPrettyPrint(long gameTime, String prettyPrint) {
         @SuppressWarnings("DynamicRegexReplaceableByCompiledPattern")
         String[] rows = prettyPrint.split("\\n");
         for (int y = 0; y < height; y++) {
             String row = rows[y];
             for (int x = 0; x < width; x++) {
                 String encodedBlock = row.substring(x * 5 + 1, x * 5 + 4);
-                RubbleShape shape = null;
                 if (" O ".equals(encodedBlock)) {
-                    shape = RubbleShape.of(x, y, 0);
+                    rubble.add(x, y, gameTime);
                 } else if (!"   ".equals(encodedBlock)) {
                     int speedX = encodedBlock.charAt(0) == '<' ? -1 : 1;
-                    shape = RubbleShape.builder()
-                            .setOffsetX(x)
-                            .setOffsetY(y)
-                            .setSpeedX(speedX)
-                            .setFallCausedBy(speedX == -1 ? Player.RIGHT : Player.LEFT)
-                            .setInvisibleWallX(Integer.parseInt(encodedBlock.substring(1)))
-                            .build();
-                }
-                if (shape != null) {
-                    rubbleRows.get(y).set(x, new RubbleBlock(this, shape, gameTime));
+                    rubble.add(x, y,
+                            speedX,
+                            Integer.parseInt(encodedBlock.substring(1)),
+                            speedX == -1 ? Player.RIGHT : Player.LEFT,
+                            gameTime);
+                    rubbleScheduler.schedule(cellOf(x, y), gameTime);
                 }
             }
         }
     }
 
-    public void onFrameStart(double gameTime) {
+    @Override
+    public void onFrameStart(long gameTime) {
         this.gameTime = gameTime;
-        rubbleRows.forEach(row -> row.forEach(block -> {
-            if (block != null) {
-                block.onFrameStart(gameTime);
-            }
-        }));
     }
 
     /**
-     * @return true if failed to resolve the move a number of iterations
+     * Moves all the rubble that is due to move in a single pass. Rows are independent, as rubble only moves
+     * horizontally; within a row, blocks are moved in the order they travel, leading block first, so that a block never
+     * waits for one in front of it that is yet to move.
+     * <p>
+     * The rows are split into groups that {@link #rowsExecutor} may resolve concurrently. While a group is being
+     * resolved, it only changes its own rows; the changes shared between rows (the schedule, the column-major index of
+     * the rubble and the index of stationary rubble) are recorded and applied afterwards in group order, so the outcome
+     * does not depend on the executor.
      */
-    public boolean moveRubble() {
-        boolean moved;
-        int n = 0;
-        do {
-            logger.debug("{}: Iteration {}", gameTime, n);
-            moved = false;
-            for (int y = 0; y < rubbleRows.size(); y++) {
-                List<RubbleBlock> row = rubbleRows.get(y);
-                for (int x = 0; x < row.size(); x++) {
-                    RubbleBlock rubbleBlock = row.get(x);
-                    if (rubbleBlock != null) {
-                        moved |= rubbleBlock.move();
-                    }
-                }
+    @Override
+    public void moveRubble() {
+        rubbleScheduler.collectDue(gameTime, dueRubbleCells);
+        // in scene order: top to bottom, left to right
+        dueRubbleCells.sort();
+        int groupCount = splitDueRubbleIntoRowGroups();
+        rowsExecutor.execute(groupCount, resolveRowGroup);
+        for (int groupIdx = 0; groupIdx < groupCount; groupIdx++) {
+            RowGroupOutcome outcome = rowGroupOutcomes[groupIdx];
+            IntArray movedCells = outcome.movedCells;
+            // pairs of the cell a block moved from and the cell it moved to, in the order the blocks moved
+            for (int i = 0; i < movedCells.size; i += 2) {
+                int fromCell = movedCells.get(i);
+                rubble.indexMoved(fromCell % width, movedCells.get(i + 1) % width, fromCell / width);
+            }
+            IntArray stoppedCells = outcome.stoppedCells;
+            for (int i = 0; i < stoppedCells.size; i++) {
+                int cell = stoppedCells.get(i);
+                rubble.indexStopped(cell % width, cell / width);
             }
-            if (moved) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("{}", prettyPrintRubble());
+            IntArray cellsToSchedule = outcome.cellsToSchedule;
+            for (int i = 0; i < cellsToSchedule.size; i++) {
+                int cell = cellsToSchedule.get(i);
+                rubbleScheduler.schedule(cell, rubble.lastMoveTime(cell % width, cell / width));
+            }
+            movedCells.clear();
+            stoppedCells.clear();
+            cellsToSchedule.clear();
+        }
+        dueRubbleCells.clear();
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}: moved rubble {}", gameTime, prettyPrintRubble());
+        }
+        if (checked) {
+            for (Player player : Player.ALL_PLAYERS) {
+                PlayerShape shape = playerShapesByPlayer.get(player);
+                if (shape != null) {
+                    checkPlacement(player, shape);
                 }
             }
-        } while (moved && n++ < maxRubbleIterations);
+        }
+    }
 
-        return moved;
+    /**
+     * Splits the due rubble into at most {@link RubbleRowsExecutor#parallelism()} groups of whole rows of roughly the
+     * same number of blocks.
+     *
+     * @return number of groups
+     */
+    private int splitDueRubbleIntoRowGroups() {
+        int dueCount = dueRubbleCells.size;
+        int maxGroupCount = min(rowGroupOutcomes.length, dueCount);
+        if (maxGroupCount == 0) {
+            return 0;
+        }
+        int[] cells = dueRubbleCells.items;
+        int targetGroupSize = (dueCount + maxGroupCount - 1) / maxGroupCount;
+        int groupCount = 1;
+        rowGroupStarts[0] = 0;
+        for (int i = 1; i < dueCount && groupCount < maxGroupCount; i++) {
+            if (i - rowGroupStarts[groupCount - 1] >= targetGroupSize && cells[i] / width != cells[i - 1] / width) {
+                rowGroupStarts[groupCount++] = i;
+            }
+        }
+        rowGroupStarts[groupCount] = dueCount;
+        return groupCount;
     }
 
-    public void render(GameCanvas canvas) {
-        rubbleRows.forEach(row -> row.forEach(block -> {
-            if (block != null) {
-                block.render(canvas);
+    private void resolveRowGroup(int groupIdx) {
+        RowGroupOutcome outcome = rowGroupOutcomes[groupIdx];
+        int[] cells = dueRubbleCells.items;
+        int groupEnd = rowGroupStarts[groupIdx + 1];
+        int i = rowGroupStarts[groupIdx];
+        while (i < groupEnd) {
+            int cell = cells[i];
+            if (isMovingRight(cell)) {
+                // for a train of blocks moving right, the leading block is the rightmost one
+                int rowEnd = (cell / width + 1) * width;
+                int trainEnd = i + 1;
+                while (trainEnd < groupEnd && cells[trainEnd] < rowEnd && isMovingRight(cells[trainEnd])) {
+                    trainEnd++;
+                }
+                for (int j = trainEnd - 1; j >= i; j--) {
+                    moveRubbleBlock(cells[j], outcome);
+                }
+                i = trainEnd;
+            } else {
+                // blocks moving left are in travel order already
+                moveRubbleBlock(cell, outcome);
+                i++;
             }
-        }));
+        }
+    }
+
+    @Override
+    public void render(GameCanvas canvas, long renderTime) {
+        // only visit occupied cells, so that the cost is proportional to the amount of rubble rather than to the scene area
+        int wordsPerRow = rubble.wordsPerRow();
+        for (int y = rubble.nextNonEmptyRow(0); y >= 0; y = rubble.nextNonEmptyRow(y + 1)) {
+            for (int wordIdx = 0; wordIdx < wordsPerRow; wordIdx++) {
+                long occupiedWord = rubble.occupiedWord(y, wordIdx);
+                while (occupiedWord != 0) {
+                    int x = (wordIdx << 6) + Long.numberOfTrailingZeros(occupiedWord);
+                    occupiedWord &= occupiedWord - 1;
+                    renderRubbleBlock(canvas, x, y, renderTime);
+                }
+            }
+        }
     }
 
-    public enum ShapeLoweringResult {
-        LOWERED, LOWERED_WILL_BE_RUBBLE_SOON, BECAME_RUBBLE, REACHED_BOTTOM
+    private void renderRubbleBlock(GameCanvas canvas, int x, int y, long renderTime) {
+        double renderX = x;
+        int sourceX = rubble.transitionSourceX(x, y);
+        double transitionProportion = (double) (renderTime - rubble.lastMoveTime(x, y)) / DROP_TRANSITION_STEP_DURATION;
+        if (sourceX != NONE && transitionProportion < 1) {
+            // interpolate between where the block was before its last move and where it is now
+            renderX = sourceX + (x - sourceX) * transitionProportion;
+        }
+        canvas.renderBlock(renderX, y, Sprite.RUBBLE_NORMAL, 1.0);
+    }
+
+    /**
+     * What resolving a group of rows changed outside of those rows, to be applied once all the groups are resolved.
+     */
+    private static final class RowGroupOutcome {
+        final IntArray movedCells = new IntArray();
+        final IntArray stoppedCells = new IntArray();
+        final IntArray cellsToSchedule = new IntArray();
     }
 }
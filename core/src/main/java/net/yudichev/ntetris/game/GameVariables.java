@@ -1,41 +1,63 @@
 package net.yudichev.ntetris.game;
 
+import net.yudichev.ntetris.GameTime;
 import net.yudichev.ntetris.Settings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static java.lang.Double.MIN_VALUE;
-import static java.util.concurrent.TimeUnit.MINUTES;
+import static net.yudichev.ntetris.GameTime.NONE;
+import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_PLAYER;
 import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
 
 final class GameVariables {
     private static final Logger logger = LoggerFactory.getLogger(GameVariables.class);
 
-    private static final long MINUTE_IN_MILLIS = MINUTES.toMillis(1);
+    private static final long MINUTE = GameTime.TICKS_PER_SECOND * 60;
     private final Settings settings;
     private double speedMultiplier = 1.0;
-    private double lastAccelerationTime = MIN_VALUE;
+    private long playerDropStepDuration = INITIAL_DROP_STEP_DURATION_PLAYER;
+    private long lastAccelerationTime = NONE;
 
     GameVariables(Settings settings) {
         this.settings = checkNotNull(settings);
     }
 
+    GameVariables(GameVariables source) {
+        settings = source.settings;
+        speedMultiplier = source.speedMultiplier;
+        playerDropStepDuration = source.playerDropStepDuration;
+        lastAccelerationTime = source.lastAccelerationTime;
+    }
+
     public double getSpeedMultiplier() {
         return speedMultiplier;
     }
 
-    public void accelerateSpeed(double gameTime) {
-        //noinspection FloatingPointEquality as designed
-        if (lastAccelerationTime == MIN_VALUE) {
+    /**
+     * @return the current duration of a player block's drop step, in ticks, never less than one
+     */
+    public long playerDropStepDuration() {
+        return playerDropStepDuration;
+    }
+
+    /**
+     * @return whether the speed changed
+     */
+    public boolean accelerateSpeed(long gameTime) {
+        if (lastAccelerationTime == NONE) {
             lastAccelerationTime = gameTime;
-            return;
+            return false;
         }
-        if (gameTime - lastAccelerationTime > MINUTE_IN_MILLIS) {
+        if (gameTime - lastAccelerationTime > MINUTE) {
             speedMultiplier *= settings.accelerationRatePerMinute();
+            //noinspection NumericCastThatLosesPrecision a tick is the finest step there is
+            playerDropStepDuration = Math.max(1, (long) (INITIAL_DROP_STEP_DURATION_PLAYER / speedMultiplier));
             if (logger.isInfoEnabled()) {
                 logger.info("Speed now {}", speedMultiplier);
             }
             lastAccelerationTime = gameTime;
+            return true;
         }
+        return false;
     }
 }
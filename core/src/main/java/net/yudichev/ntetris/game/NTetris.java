@@ -8,33 +8,42 @@ import net.yudichev.ntetris.util.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import static net.yudichev.ntetris.GameTime.NONE;
 import static net.yudichev.ntetris.sound.Sounds.Sample.RUBBLE_COLLAPSE;
 import static net.yudichev.ntetris.util.Preconditions.checkArgument;
 import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
 
-// all time units are millis
+// all times are in GameTime ticks
 // all coordinates are relative (0...1) except when mentioned
-public final class NTetris implements Game {
+public final class NTetris implements SimulatedGame {
     private static final Logger logger = LoggerFactory.getLogger(NTetris.class);
+    private final Settings settings;
     private final GameCanvas canvas;
+    private final DeferredWorkScheduler deferredWork;
     private final Sounds sounds;
     private final ControlState controlState;
     private final GameJournal journal;
     private final RandomNumberGenerator randomNumberGenerator;
-    private final GameScene gameScene;
+    private final GameEngine gameScene;
     private final EffectScene effectScene;
     private final StaticScene staticScene;
     private final GameVariables variables;
+    private final ShapeCatalogue shapeCatalogue;
+    private final Consumer<GameControl> processControl = this::processControl;
+    private final GameEvents events = new GameEvents();
+    private final List<GameEventListener> eventListeners = new ArrayList<>();
 
     private Map<Player, PlayerBlock> blockByPlayer;
     private boolean gameOver;
     private boolean paused;
-    private double lastPausedTime = Double.MIN_VALUE;
-    private double totalPausedTimeSpan;
+    private long lastPausedTime = NONE;
+    private long totalPausedTimeSpan;
 
     public NTetris(Settings settings,
                    GameCanvas canvas,
@@ -42,23 +51,71 @@ public final class NTetris implements Game {
                    ControlState controlState,
                    GameJournal journal,
                    RandomNumberGenerator randomNumberGenerator) {
+        this(settings, canvas, sounds, controlState, journal, randomNumberGenerator, SequentialRubbleRowsExecutor.INSTANCE);
+    }
+
+    /**
+     * @param rubbleRowsExecutor see {@link ParallelRubbleRowsExecutor} for large boards
+     */
+    public NTetris(Settings settings,
+                   GameCanvas canvas,
+                   Sounds sounds,
+                   ControlState controlState,
+                   GameJournal journal,
+                   RandomNumberGenerator randomNumberGenerator,
+                   RubbleRowsExecutor rubbleRowsExecutor) {
+        this(settings, canvas, sounds, controlState, journal, randomNumberGenerator, rubbleRowsExecutor, DeferredWorkScheduler.inline());
+    }
+
+    /**
+     * @param deferredWork where the work that can wait, such as starting visual effects, is deferred to
+     */
+    public NTetris(Settings settings,
+                   GameCanvas canvas,
+                   Sounds sounds,
+                   ControlState controlState,
+                   GameJournal journal,
+                   RandomNumberGenerator randomNumberGenerator,
+                   RubbleRowsExecutor rubbleRowsExecutor,
+                   DeferredWorkScheduler deferredWork) {
+        this(settings, canvas, sounds, controlState, journal, randomNumberGenerator, GameEngineFactory.reference(rubbleRowsExecutor), deferredWork);
+    }
+
+    NTetris(Settings settings,
+            GameCanvas canvas,
+            Sounds sounds,
+            ControlState controlState,
+            GameJournal journal,
+            RandomNumberGenerator randomNumberGenerator,
+            GameEngineFactory gameEngineFactory) {
+        this(settings, canvas, sounds, controlState, journal, randomNumberGenerator, gameEngineFactory, DeferredWorkScheduler.inline());
+    }
+
+    NTetris(Settings settings,
+            GameCanvas canvas,
+            Sounds sounds,
+            ControlState controlState,
+            GameJournal journal,
+            RandomNumberGenerator randomNumberGenerator,
+            GameEngineFactory gameEngineFactory,
+            DeferredWorkScheduler deferredWork) {
+        this.settings = checkNotNull(settings);
         this.canvas = checkNotNull(canvas);
+        this.deferredWork = checkNotNull(deferredWork);
         this.sounds = checkNotNull(sounds);
         this.controlState = checkNotNull(controlState);
         this.journal = checkNotNull(journal);
         this.randomNumberGenerator = checkNotNull(randomNumberGenerator);
         int sceneWidthBlocks = settings.sceneWidthBlocks();
         int sceneHeightBlocks = settings.sceneHeightBlocks();
+        shapeCatalogue = settings.shapeCatalogue();
+        checkArgument(shapeCatalogue.fitsScene(sceneWidthBlocks, sceneHeightBlocks),
+                "shapes %s do not fit scene %sx%s", shapeCatalogue, sceneWidthBlocks, sceneHeightBlocks);
 
-        effectScene = new EffectScene(sceneWidthBlocks, sceneHeightBlocks, canvas);
+        effectScene = new EffectScene(sceneHeightBlocks, canvas);
 
-        gameScene = new GameScene(
-                sceneWidthBlocks,
-                sceneHeightBlocks,
-                (gameTime, colIdx) -> {
-                    this.sounds.play(RUBBLE_COLLAPSE);
-                    effectScene.collapseRubble(colIdx, gameTime);
-                });
+        eventListeners.add(this::onGameEvent);
+        gameScene = gameEngineFactory.create(sceneWidthBlocks, sceneHeightBlocks, events, settings.engineMode());
 
         staticScene = new StaticScene(sceneWidthBlocks, sceneHeightBlocks, canvas);
         journal.settings(settings);
@@ -66,27 +123,91 @@ public final class NTetris implements Game {
         variables = new GameVariables(settings);
     }
 
+    private NTetris(NTetris source,
+                    GameCanvas canvas,
+                    Sounds sounds,
+                    ControlState controlState,
+                    GameJournal journal,
+                    RandomNumberGenerator randomNumberGenerator) {
+        settings = source.settings;
+        this.canvas = checkNotNull(canvas);
+        // the fork may well not be rendered in real time
+        deferredWork = DeferredWorkScheduler.inline();
+        this.sounds = checkNotNull(sounds);
+        this.controlState = checkNotNull(controlState);
+        this.journal = checkNotNull(journal);
+        this.randomNumberGenerator = checkNotNull(randomNumberGenerator);
+        shapeCatalogue = source.shapeCatalogue;
+        // effects are only visual, the fork starts without the ones in progress
+        effectScene = new EffectScene(source.gameScene.getHeight(), canvas);
+        // subscribers stay with the source, the fork only has its own sounds and effects
+        eventListeners.add(this::onGameEvent);
+        gameScene = source.gameScene.fork(events);
+        staticScene = new StaticScene(source.gameScene.getWidth(), source.gameScene.getHeight(), canvas);
+        journal.settings(settings);
+        variables = new GameVariables(source.variables);
+        if (source.blockByPlayer != null) {
+            blockByPlayer = new EnumMap<>(Player.class);
+            source.blockByPlayer.forEach((player, playerBlock) ->
+                    blockByPlayer.put(player, playerBlock.fork(gameScene, journal, randomNumberGenerator, variables)));
+        }
+        gameOver = source.gameOver;
+        paused = source.paused;
+        lastPausedTime = source.lastPausedTime;
+        totalPausedTimeSpan = source.totalPausedTimeSpan;
+    }
+
+    /**
+     * Creates a game in the same state as this one that then runs independently of it, e.g. to look ahead or to branch
+     * a replay. Forking is cheap: the rubble is shared copy-on-write until either game changes it.
+     * <p>
+     * The fork's journal starts with the settings, like that of a new game, but then only records the fork from this
+     * point on: it can be read like any other journal, but replaying it starts a new game rather than one in the state
+     * of this one, so it only replays the fork if it was forked from a new game.
+     */
+    public NTetris fork(GameCanvas canvas,
+                        Sounds sounds,
+                        ControlState controlState,
+                        GameJournal journal,
+                        RandomNumberGenerator randomNumberGenerator) {
+        return new NTetris(this, canvas, sounds, controlState, journal, randomNumberGenerator);
+    }
+
+    /**
+     * @param listener is told about the events of every step from now on, after the game's own sounds and effects
+     */
+    public void subscribe(GameEventListener listener) {
+        eventListeners.add(checkNotNull(listener));
+    }
+
     public void addRubbleColumnWithHole(int x, int holeIndex) {
         gameScene.addRubbleColumnWithHole(x, holeIndex);
     }
 
     @Override
-    public void render(double realGameTime) {
+    public void step(long realGameTime) {
         journal.beginFrame(realGameTime);
-        canvas.beginFrame();
 
-        double gameTime = offsetGameTime(realGameTime);
+        long gameTime = offsetGameTime(realGameTime);
 
-        variables.accelerateSpeed(gameTime);
+        if (variables.accelerateSpeed(gameTime)) {
+            //noinspection NumericCastThatLosesPrecision percent is precise enough for the listeners
+            events.add(GameEventType.SPEED_UP, gameTime, null, (int) Math.round(variables.getSpeedMultiplier() * 100));
+        }
 
         if (blockByPlayer == null) {
             blockByPlayer = new EnumMap<>(Player.class);
             for (Player player : Player.ALL_PLAYERS) {
-                blockByPlayer.put(player, new PlayerBlock(player, gameScene, journal, randomNumberGenerator, variables, gameTime));
+                blockByPlayer.put(player, new PlayerBlock(player, gameScene, journal, randomNumberGenerator, variables, shapeCatalogue, gameTime));
             }
         }
 
-        forEachPlayer(playerBlock -> playerBlock.onFrameStart(gameTime));
+        for (int i = 0; i < Player.ALL_PLAYERS.length; i++) {
+            PlayerBlock playerBlock = blockByPlayer.get(Player.ALL_PLAYERS[i]);
+            if (playerBlock != null) {
+                playerBlock.onFrameStart(gameTime);
+            }
+        }
         gameScene.onFrameStart(gameTime);
 
         if (!gameOver) {
@@ -97,16 +218,14 @@ public final class NTetris implements Game {
                     logger.debug("{}: before move {}", gameTime, gameScene.prettyPrintRubble());
                 }
 
-                boolean failed = gameScene.moveRubble();
-                if (failed) {
-                    throw new RuntimeException("Stuck resolving rubble: " + gameScene.prettyPrintRubble());
-                }
+                gameScene.moveRubble();
 
                 for (int i = 0; i < Player.ALL_PLAYERS.length; i++) {
                     PlayerBlock playerBlock = blockByPlayer.get(Player.ALL_PLAYERS[i]);
                     if (playerBlock != null) {
                         gameOver = !playerBlock.lower();
                         if (gameOver) {
+                            events.add(GameEventType.GAME_OVER, gameTime, null, 0);
                             break;
                         }
                     }
@@ -120,9 +239,25 @@ public final class NTetris implements Game {
             forEachPlayer(PlayerBlock::gameOver);
         }
 
+        events.dispatchTo(eventListeners);
+    }
+
+    @Override
+    public void draw(long realGameTime) {
+        canvas.beginFrame();
+
+        // time does not pass on pause, for the frames in between steps too
+        long gameTime = (lastPausedTime == NONE ? realGameTime : lastPausedTime) - totalPausedTimeSpan;
         staticScene.render(gameTime);
-        forEachPlayer(playerBlock -> playerBlock.render(canvas));
-        gameScene.render(canvas);
+        if (blockByPlayer != null) {
+            for (int i = 0; i < Player.ALL_PLAYERS.length; i++) {
+                PlayerBlock playerBlock = blockByPlayer.get(Player.ALL_PLAYERS[i]);
+                if (playerBlock != null) {
+                    playerBlock.render(canvas, gameTime);
+                }
+            }
+        }
+        gameScene.render(canvas, gameTime);
         effectScene.render(gameTime);
 
         if (paused) {
@@ -135,16 +270,24 @@ public final class NTetris implements Game {
         canvas.endFrame();
     }
 
-    void initialiseFromPrettyPrint(double gameTime, String scenario, @Nullable PlayerShape leftPlayerShape, @Nullable PlayerShape rightPlayerShape) {
+    /**
+     * @return 64-bit hash of the rubble and the player shapes, the same for the same state however it was reached and in
+     * any run, e.g. to compare replays frame by frame or to detect repeated states; cheap enough to take every frame
+     */
+    public long stateHash() {
+        return gameScene.stateHash();
+    }
+
+    void initialiseFromPrettyPrint(long gameTime, String scenario, @Nullable PlayerShape leftPlayerShape, @Nullable PlayerShape rightPlayerShape) {
         gameScene.initialiseRubbleFromPrettyPrint(gameTime, scenario);
         blockByPlayer = new EnumMap<>(Player.class);
         if (leftPlayerShape != null) {
             checkArgument(gameScene.attemptAddPlayerShape(Player.LEFT, leftPlayerShape));
-            blockByPlayer.put(Player.LEFT, new PlayerBlock(Player.LEFT, gameScene, journal, randomNumberGenerator, variables, gameTime));
+            blockByPlayer.put(Player.LEFT, new PlayerBlock(Player.LEFT, gameScene, journal, randomNumberGenerator, variables, shapeCatalogue, gameTime));
         }
         if (rightPlayerShape != null) {
             checkArgument(gameScene.attemptAddPlayerShape(Player.RIGHT, rightPlayerShape));
-            blockByPlayer.put(Player.RIGHT, new PlayerBlock(Player.RIGHT, gameScene, journal, randomNumberGenerator, variables, gameTime));
+            blockByPlayer.put(Player.RIGHT, new PlayerBlock(Player.RIGHT, gameScene, journal, randomNumberGenerator, variables, shapeCatalogue, gameTime));
         }
     }
 
@@ -152,24 +295,33 @@ public final class NTetris implements Game {
         return gameScene.prettyPrintRubble();
     }
 
-    @SuppressWarnings("FloatingPointEquality")
-    private double offsetGameTime(double gameTimeMillis) {
+    private void onGameEvent(GameEventType type, long gameTime, @Nullable Player player, int value) {
+        if (type == GameEventType.COLUMN_COLLAPSED) {
+            sounds.play(RUBBLE_COLLAPSE);
+            // the effect is timed from the collapse, so starting it a frame or two late only skips its first frames
+            deferredWork.defer(DeferredWorkScheduler.Priority.NORMAL, () -> effectScene.collapseRubble(value, gameTime));
+        }
+    }
+
+    private long offsetGameTime(long gameTime) {
         if (paused) {
-            if (lastPausedTime == Double.MIN_VALUE) {
-                lastPausedTime = gameTimeMillis;
+            if (lastPausedTime == NONE) {
+                lastPausedTime = gameTime;
                 logger.debug("Paused at {}", lastPausedTime);
             }
-            gameTimeMillis = lastPausedTime;
+            gameTime = lastPausedTime;
         } else {
-            if (lastPausedTime != Double.MIN_VALUE) {
-                totalPausedTimeSpan += gameTimeMillis - lastPausedTime;
-                logger.debug("Un-paused at {}, last paused at {}, total time on pause {}", gameTimeMillis, lastPausedTime, totalPausedTimeSpan);
-                lastPausedTime = Double.MIN_VALUE;
+            if (lastPausedTime != NONE) {
+                totalPausedTimeSpan += gameTime - lastPausedTime;
+                logger.debug("Un-paused at {}, last paused at {}, total time on pause {}", gameTime, lastPausedTime, totalPausedTimeSpan);
+                lastPausedTime = NONE;
             }
         }
-        logger.debug("Real time {}, total paused {}, game time {}", gameTimeMillis, totalPausedTimeSpan, gameTimeMillis - totalPausedTimeSpan);
-        gameTimeMillis -= totalPausedTimeSpan;
-        return gameTimeMillis;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Real time {}, total paused {}, game time {}", gameTime, totalPausedTimeSpan, gameTime - totalPausedTimeSpan);
+        }
+        gameTime -= totalPausedTimeSpan;
+        return gameTime;
     }
 
     private void forEachPlayer(Consumer<PlayerBlock> action) {
@@ -181,40 +333,42 @@ public final class NTetris implements Game {
         }
     }
 
-    private void processKeys(double gameTimeMillis) {
-        controlState.forAllActiveControls(gameTimeMillis, gameControl -> {
-            journal.gameControlActive(gameControl);
-            if (gameControl == GameControl.PAUSE) {
-                paused = !paused;
-            }
-            if (!paused) {
-                switch (gameControl) {
-                    case LEFT_PLAYER_UP:
-                        gameScene.movePlayerShapeVertically(Player.LEFT, -1);
-                        break;
-                    case LEFT_PLAYER_DOWN:
-                        gameScene.movePlayerShapeVertically(Player.LEFT, 1);
-                        break;
-                    case RIGHT_PLAYER_UP:
-                        gameScene.movePlayerShapeVertically(Player.RIGHT, -1);
-                        break;
-                    case RIGHT_PLAYER_DOWN:
-                        gameScene.movePlayerShapeVertically(Player.RIGHT, 1);
-                        break;
-                    case LEFT_PLAYER_ROTATE:
-                        gameScene.rotatePlayersShape(Player.LEFT);
-                        break;
-                    case RIGHT_PLAYER_ROTATE:
-                        gameScene.rotatePlayersShape(Player.RIGHT);
-                        break;
-                    case LEFT_PLAYER_DROP:
-                        blockByPlayer.get(Player.LEFT).drop();
-                        break;
-                    case RIGHT_PLAYER_DROP:
-                        blockByPlayer.get(Player.RIGHT).drop();
-                        break;
-                }
+    private void processKeys(long gameTime) {
+        controlState.forAllActiveControls(gameTime, processControl);
+    }
+
+    private void processControl(GameControl gameControl) {
+        journal.gameControlActive(gameControl);
+        if (gameControl == GameControl.PAUSE) {
+            paused = !paused;
+        }
+        if (!paused) {
+            switch (gameControl) {
+                case LEFT_PLAYER_UP:
+                    gameScene.movePlayerShapeVertically(Player.LEFT, -1);
+                    break;
+                case LEFT_PLAYER_DOWN:
+                    gameScene.movePlayerShapeVertically(Player.LEFT, 1);
+                    break;
+                case RIGHT_PLAYER_UP:
+                    gameScene.movePlayerShapeVertically(Player.RIGHT, -1);
+                    break;
+                case RIGHT_PLAYER_DOWN:
+                    gameScene.movePlayerShapeVertically(Player.RIGHT, 1);
+                    break;
+                case LEFT_PLAYER_ROTATE:
+                    gameScene.rotatePlayersShape(Player.LEFT);
+                    break;
+                case RIGHT_PLAYER_ROTATE:
+                    gameScene.rotatePlayersShape(Player.RIGHT);
+                    break;
+                case LEFT_PLAYER_DROP:
+                    blockByPlayer.get(Player.LEFT).drop();
+                    break;
+                case RIGHT_PLAYER_DROP:
+                    blockByPlayer.get(Player.RIGHT).drop();
+                    break;
             }
-        });
+        }
     }
 }
@@ -0,0 +1,56 @@
+package net.yudichev.ntetris.game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
+
+/**
+ * Resolves groups of rows on a fork-join pool, for large boards. Not available in the browser, see {@code NTetris.gwt.xml}.
+ */
+public final class ParallelRubbleRowsExecutor implements RubbleRowsExecutor {
+    private final ForkJoinPool pool;
+
+    public ParallelRubbleRowsExecutor(ForkJoinPool pool) {
+        this.pool = checkNotNull(pool);
+    }
+
+    @Override
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void execute(int groupCount, IntConsumer resolveGroup) {
+        if (groupCount == 1) {
+            resolveGroup.accept(0);
+        } else if (groupCount > 1) {
+            pool.invoke(new ResolveGroupsTask(resolveGroup, 0, groupCount));
+        }
+    }
+
+    private static final class ResolveGroupsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final IntConsumer resolveGroup;
+        private final int fromGroup;
+        private final int toGroup;
+
+        ResolveGroupsTask(IntConsumer resolveGroup, int fromGroup, int toGroup) {
+            this.resolveGroup = resolveGroup;
+            this.fromGroup = fromGroup;
+            this.toGroup = toGroup;
+        }
+
+        @Override
+        protected void compute() {
+            if (toGroup - fromGroup == 1) {
+                resolveGroup.accept(fromGroup);
+            } else {
+                int midGroup = (fromGroup + toGroup) >>> 1;
+                invokeAll(new ResolveGroupsTask(resolveGroup, fromGroup, midGroup),
+                        new ResolveGroupsTask(resolveGroup, midGroup, toGroup));
+            }
+        }
+    }
+}
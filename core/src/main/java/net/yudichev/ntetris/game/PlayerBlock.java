@@ -4,53 +4,88 @@ import net.yudichev.ntetris.RandomNumberGenerator;
 import net.yudichev.ntetris.canvas.GameCanvas;
 import net.yudichev.ntetris.journal.GameJournal;
 
-import java.util.function.IntFunction;
+import java.util.Arrays;
 
+import static net.yudichev.ntetris.GameTime.NONE;
 import static net.yudichev.ntetris.canvas.Sprite.LEFT_PLAYER_NORMAL;
 import static net.yudichev.ntetris.canvas.Sprite.RIGHT_PLAYER_NORMAL;
 import static net.yudichev.ntetris.game.GameConstants.*;
-import static net.yudichev.ntetris.game.GameScene.ShapeLoweringResult;
+import static net.yudichev.ntetris.game.GameEngine.ShapeLoweringResult;
 import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
+import static net.yudichev.ntetris.util.Preconditions.checkState;
 
 // TODO a drop must add a full cycle for post-drop positioning, UNLESS the drop did not change the position to avoid cheating
 final class PlayerBlock extends GameBlock<PlayerShape> {
 
-    private static final PlayerShapeType[] ALL_SHAPE_TYPES = PlayerShapeType.values();
-
-    private final GameScene gameScene;
+    private final GameEngine gameScene;
     private final GameJournal journal;
     private final RandomNumberGenerator randomNumberGenerator;
     private final GameVariables gameVariables;
+    private final ShapeCatalogue shapeCatalogue;
+    private final long[] blockedVerticalOffsets;
+    private final long[] untriedVerticalOffsets;
     /**
      * -1 means no deadline
      */
     private final Player player;
-    private double penaltyDeadline = Double.MIN_VALUE;
+    private long penaltyDeadline = NONE;
     private boolean gameOver;
 
     PlayerBlock(Player player,
-                GameScene gameScene,
+                GameEngine gameScene,
                 GameJournal journal,
                 RandomNumberGenerator randomNumberGenerator,
                 GameVariables gameVariables,
-                double creationGameTime) {
+                ShapeCatalogue shapeCatalogue,
+                long creationGameTime) {
         super(player == Player.LEFT ? LEFT_PLAYER_NORMAL : RIGHT_PLAYER_NORMAL, creationGameTime);
         this.player = checkNotNull(player);
         this.gameScene = checkNotNull(gameScene);
         this.journal = checkNotNull(journal);
         this.randomNumberGenerator = checkNotNull(randomNumberGenerator);
         this.gameVariables = checkNotNull(gameVariables);
+        this.shapeCatalogue = checkNotNull(shapeCatalogue);
+        blockedVerticalOffsets = new long[(gameScene.getHeight() + Long.SIZE - 1) >>> 6];
+        untriedVerticalOffsets = new long[blockedVerticalOffsets.length];
+    }
+
+    private PlayerBlock(PlayerBlock source,
+                        GameEngine gameScene,
+                        GameJournal journal,
+                        RandomNumberGenerator randomNumberGenerator,
+                        GameVariables gameVariables) {
+        super(source);
+        player = source.player;
+        this.gameScene = checkNotNull(gameScene);
+        this.journal = checkNotNull(journal);
+        this.randomNumberGenerator = checkNotNull(randomNumberGenerator);
+        this.gameVariables = checkNotNull(gameVariables);
+        shapeCatalogue = source.shapeCatalogue;
+        blockedVerticalOffsets = new long[source.blockedVerticalOffsets.length];
+        untriedVerticalOffsets = new long[source.untriedVerticalOffsets.length];
+        penaltyDeadline = source.penaltyDeadline;
+        gameOver = source.gameOver;
+    }
+
+    /**
+     * @return a block in the same state that plays in the given (forked) scene
+     */
+    public PlayerBlock fork(GameEngine gameScene, GameJournal journal, RandomNumberGenerator randomNumberGenerator, GameVariables gameVariables) {
+        return new PlayerBlock(this, gameScene, journal, randomNumberGenerator, gameVariables);
     }
 
     public boolean lower() {
-        @SuppressWarnings("NumericCastThatLosesPrecision") // exactly what's intended - to get the floor
-        long outstandingDropSteps = (long) (timeSinceLastMove / (INITIAL_DROP_STEP_DURATION_PLAYER / gameVariables.getSpeedMultiplier()));
-        logger.debug("{}: {}:  timeSinceLastMove {}", gameTime, player, timeSinceLastMove);
+        long outstandingDropSteps = timeSinceLastMove / gameVariables.playerDropStepDuration();
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}: {}:  timeSinceLastMove {}", gameTime, player, timeSinceLastMove);
+        }
         if (outstandingDropSteps > 0) {
             lastMoveTime = gameTime;
             sourceShapeWhenTransitioning = gameScene.getPlayerShapesByPlayer().get(player);
             do {
-                logger.debug("{}: {}: outstanding steps {}", gameTime, player, outstandingDropSteps);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("{}: {}: outstanding steps {}", gameTime, player, outstandingDropSteps);
+                }
                 ShapeLoweringResult loweringResult = gameScene.lowerShape(player);
                 logger.debug("player lowering results {}", loweringResult);
                 if (loweringResult != null) {
@@ -89,10 +124,10 @@ final class PlayerBlock extends GameBlock<PlayerShape> {
     }
 
     @Override
-    public void render(GameCanvas canvas) {
+    public void render(GameCanvas canvas, long renderTime) {
         PlayerShape destinationShape = gameScene.getPlayerShapesByPlayer().get(player);
         if (destinationShape != null) {
-            renderShape(canvas, destinationShape);
+            renderShape(canvas, destinationShape, renderTime);
         }
     }
 
@@ -105,23 +140,24 @@ final class PlayerBlock extends GameBlock<PlayerShape> {
         sourceShapeWhenTransitioning = null;
     }
 
-    @SuppressWarnings("FloatingPointEquality")
     private boolean shouldSpawnNewShape() {
-        logger.debug("{}: player {} has no shape, deadline {}", gameTime, player, penaltyDeadline);
-        if (penaltyDeadline == Double.MIN_VALUE) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}: player {} has no shape, deadline {}", gameTime, player, penaltyDeadline);
+        }
+        if (penaltyDeadline == NONE) {
             return true;
         }
         if (gameTime >= penaltyDeadline) {
-            penaltyDeadline = Double.MIN_VALUE;
+            penaltyDeadline = NONE;
             return true;
         }
         return false;
     }
 
     private boolean attemptToSpawnNewShape(Player player) {
-        int idx = randomNumberGenerator.nextInt(ALL_SHAPE_TYPES.length);
-        journal.randomNextInt(ALL_SHAPE_TYPES.length, idx);
-        PlayerShapeType shape = ALL_SHAPE_TYPES[idx];
+        int idx = randomNumberGenerator.nextInt(shapeCatalogue.size());
+        journal.randomNextInt(shapeCatalogue.size(), idx);
+        RectangularPattern pattern = shapeCatalogue.spawnPattern(idx);
         int horizontalOffset;
         int horizontalSpeed;
         switch (player) {
@@ -130,78 +166,63 @@ final class PlayerBlock extends GameBlock<PlayerShape> {
                 horizontalSpeed = 1;
                 break;
             case RIGHT:
-                horizontalOffset = gameScene.getWidth() - shape.getPattern().width();
+                horizontalOffset = gameScene.getWidth() - shapeCatalogue.spawnWidth(idx);
                 horizontalSpeed = -1;
                 break;
             default:
                 throw new IllegalArgumentException("Unsupported player " + player);
         }
 
-        int verticalOffsetRange = gameScene.getHeight() - shape.getPattern().height();
-
-        return findSpawnPointAndSpawn(
-                verticalOffsetRange,
-                verticalOffset -> gameScene.attemptAddPlayerShape(player, PlayerShape.of(shape.getPattern(),
-                        horizontalOffset,
-                        verticalOffset,
-                        horizontalSpeed)));
-    }
+        int verticalOffsetRange = gameScene.getHeight() - shapeCatalogue.spawnHeight(idx);
 
-    private boolean findSpawnPointAndSpawn(int verticalOffsetRange, IntFunction<Boolean> spawner) {
-        boolean[] attemptedDropVerticalOffsets = new boolean[verticalOffsetRange];
-        int verticalOffset;
-        int attempts = 0;
-        boolean succeeded;
-        do {
-            verticalOffset = findRandomEmptySlot(attemptedDropVerticalOffsets);
-            if (verticalOffset < 0) {
-                return false;
-            } else {
-                attemptedDropVerticalOffsets[verticalOffset] = true;
-            }
-            succeeded = spawner.apply(verticalOffset);
-        } while (!succeeded && ++attempts < verticalOffsetRange);
-        return succeeded;
+        return findSpawnPointAndSpawn(pattern, horizontalOffset, horizontalSpeed, verticalOffsetRange);
     }
 
     /**
-     * @return slot or -1 if no empty slots available
+     * Draws the same random numbers as trying random untried vertical offsets one by one until the shape can be added
+     * there, but knows upfront which offsets are blocked.
      */
-    private int findRandomEmptySlot(boolean[] slots) {
-        int numberOfEmptySlots = emptySlots(slots);
-        if (numberOfEmptySlots == 0) {
-            return -1;
+    private boolean findSpawnPointAndSpawn(RectangularPattern pattern, int horizontalOffset, int horizontalSpeed, int verticalOffsetRange) {
+        Arrays.fill(blockedVerticalOffsets, 0);
+        gameScene.markBlockedSpawnOffsetsY(player, pattern, horizontalOffset, blockedVerticalOffsets);
+        Arrays.fill(untriedVerticalOffsets, 0);
+        for (int verticalOffset = 0; verticalOffset < verticalOffsetRange; verticalOffset++) {
+            untriedVerticalOffsets[verticalOffset >>> 6] |= 1L << verticalOffset;
         }
-        int candidateFreeIdx = randomNumberGenerator.nextInt(numberOfEmptySlots);
-        journal.randomNextInt(numberOfEmptySlots, candidateFreeIdx);
-        int i;
-        int j = 0;
-        for (i = 0; i < slots.length; i++) {
-            if (!slots[i] && j++ == candidateFreeIdx) {
-                break;
+        for (int untriedCount = verticalOffsetRange; untriedCount > 0; untriedCount--) {
+            int candidateUntriedIdx = randomNumberGenerator.nextInt(untriedCount);
+            journal.randomNextInt(untriedCount, candidateUntriedIdx);
+            int verticalOffset = nthSetBit(untriedVerticalOffsets, candidateUntriedIdx);
+            untriedVerticalOffsets[verticalOffset >>> 6] &= ~(1L << verticalOffset);
+            if ((blockedVerticalOffsets[verticalOffset >>> 6] & 1L << verticalOffset) == 0) {
+                checkState(gameScene.attemptAddPlayerShape(player, gameScene.playerShape(pattern, horizontalOffset, verticalOffset, horizontalSpeed)),
+                        "player %s could not spawn at unblocked offset %s", player, verticalOffset);
+                return true;
             }
         }
-        if (i == slots.length) {
-            return -1;
-        }
-        return i;
+        return false;
     }
 
-    private static int emptySlots(boolean[] slots) {
-        int result = 0;
-        for (boolean slot : slots) {
-            if (!slot) {
-                result++;
-            }
+    private static int nthSetBit(long[] bits, int n) {
+        int wordIdx = 0;
+        int bitCount;
+        while (n >= (bitCount = Long.bitCount(bits[wordIdx]))) {
+            n -= bitCount;
+            wordIdx++;
         }
-        return result;
+        long word = bits[wordIdx];
+        for (int i = 0; i < n; i++) {
+            word &= word - 1;
+        }
+        return (wordIdx << 6) + Long.numberOfTrailingZeros(word);
     }
 
-
     private void processLoweringResult(ShapeLoweringResult shapeLoweringResult) {
         if (shapeLoweringResult == ShapeLoweringResult.REACHED_BOTTOM) {
             penaltyDeadline = gameTime + PLAYER_PENALTY_PAUSE;
-            logger.debug("Player {} reached bottom, penalty until {}", player, penaltyDeadline);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Player {} reached bottom, penalty until {}", player, penaltyDeadline);
+            }
         }
     }
 }
@@ -0,0 +1,100 @@
+package net.yudichev.ntetris.game;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+
+/**
+ * Interned player shapes of a scene size: there is at most one instance per pattern orientation, position and direction
+ * of movement, so that moving or rotating a shape to where a shape of the same pattern has been before is a table
+ * lookup rather than an allocation. Patterns are told apart by identity; together with the precomputed
+ * {@link RectangularPattern#rotated() rotations} this makes the universe of the shapes finite.
+ * <p>
+ * There is one universe per scene size, shared by all the scenes of that size and their forks, possibly from different
+ * threads. It is filled in lazily, one shape at a time, so it only ever holds the places shapes have actually been to;
+ * the first time a shape of a pattern reaches a place it allocates the shape, and the first time it reaches a row it
+ * also allocates the row's table, which takes a reference per column.
+ */
+final class PlayerShapeUniverse {
+    private static final ConcurrentMap<Long, PlayerShapeUniverse> UNIVERSES_BY_SCENE_SIZE = new ConcurrentHashMap<>();
+    private final int width;
+    private final int height;
+    // replaced as a whole when a pattern is added, so that a lookup needs no lock
+    private volatile Map<RectangularPattern, AtomicReferenceArray<AtomicReferenceArray<PlayerShape>>> shapesByPattern =
+            new IdentityHashMap<>();
+
+    private PlayerShapeUniverse(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the universe of the shapes of scenes of the given size
+     */
+    public static PlayerShapeUniverse of(int width, int height) {
+        checkArgument(width > 0 && height > 0, "invalid scene size %sx%s", width, height);
+        return UNIVERSES_BY_SCENE_SIZE.computeIfAbsent((long) width << 32 | height, size -> new PlayerShapeUniverse(width, height));
+    }
+
+    public boolean fitsScene(RectangularPattern pattern, int offsetX, int offsetY) {
+        return offsetX >= 0 && offsetX + pattern.width() <= width
+                && offsetY >= 0 && offsetY + pattern.height() <= height;
+    }
+
+    /**
+     * @return the interned shape equal to the given one; the given shape is interned if there is none yet
+     */
+    public PlayerShape intern(PlayerShape shape) {
+        AtomicReferenceArray<PlayerShape> row = row(shape.pattern(), shape.offsetX(), shape.offsetY(), shape.speedX());
+        PlayerShape internedShape = row.get(shape.offsetX());
+        if (internedShape == null) {
+            internedShape = row.compareAndSet(shape.offsetX(), null, shape) ? shape : row.get(shape.offsetX());
+        }
+        return internedShape;
+    }
+
+    public PlayerShape shape(RectangularPattern pattern, int offsetX, int offsetY, int speedX) {
+        AtomicReferenceArray<PlayerShape> row = row(pattern, offsetX, offsetY, speedX);
+        PlayerShape shape = row.get(offsetX);
+        if (shape == null) {
+            shape = PlayerShape.of(pattern, offsetX, offsetY, speedX);
+            if (!row.compareAndSet(offsetX, null, shape)) {
+                shape = row.get(offsetX);
+            }
+        }
+        return shape;
+    }
+
+    private AtomicReferenceArray<PlayerShape> row(RectangularPattern pattern, int offsetX, int offsetY, int speedX) {
+        checkArgument(fitsScene(pattern, offsetX, offsetY), "shape at %s:%s crosses scene boundary", offsetX, offsetY);
+        checkArgument(speedX == 1 || speedX == -1, "unsupported player shape speed %s", speedX);
+        AtomicReferenceArray<AtomicReferenceArray<PlayerShape>> rows = shapesByPattern.get(pattern);
+        if (rows == null) {
+            rows = addPattern(pattern);
+        }
+        // rows of the shapes moving right first, then of those moving left; each indexed by horizontal offset
+        int rowIdx = speedX > 0 ? offsetY : height + offsetY;
+        AtomicReferenceArray<PlayerShape> row = rows.get(rowIdx);
+        if (row == null) {
+            rows.compareAndSet(rowIdx, null, new AtomicReferenceArray<>(width));
+            row = rows.get(rowIdx);
+        }
+        return row;
+    }
+
+    private synchronized AtomicReferenceArray<AtomicReferenceArray<PlayerShape>> addPattern(RectangularPattern pattern) {
+        AtomicReferenceArray<AtomicReferenceArray<PlayerShape>> rows = shapesByPattern.get(pattern);
+        if (rows == null) {
+            rows = new AtomicReferenceArray<>(height * 2);
+            Map<RectangularPattern, AtomicReferenceArray<AtomicReferenceArray<PlayerShape>>> newShapesByPattern =
+                    new IdentityHashMap<>(shapesByPattern);
+            newShapesByPattern.put(pattern, rows);
+            shapesByPattern = newShapesByPattern;
+        }
+        return rows;
+    }
+}
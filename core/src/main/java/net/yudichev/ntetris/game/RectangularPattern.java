@@ -8,14 +8,25 @@ import static java.util.Collections.unmodifiableList;
 import static net.yudichev.ntetris.util.Preconditions.checkArgument;
 
 final class RectangularPattern {
+    private static final int ORIENTATION_COUNT = 4;
     private static final RectangularPattern SINGLE_BLOCK = pattern(Row.row(true));
     private final List<Row> rows;
     private final int width;
+    /**
+     * Row {@code y} as a bitmask, bit {@code x} set if the pattern has an element at column {@code x}.
+     */
+    private final long[] rowMasks;
+    /**
+     * All the orientations of the pattern, shared between them, each one rotated clockwise from the previous one.
+     */
+    private final RectangularPattern[] orientations;
+    private final int orientation;
+    private final long stateKey;
 
     /**
      * @param rows pattern rows, top row first
      */
-    private RectangularPattern(List<Row> rows) {
+    private RectangularPattern(List<Row> rows, RectangularPattern[] orientations, int orientation) {
         checkArgument(!rows.isEmpty());
         width = rows.stream()
                 .reduce((row1, row2) -> {
@@ -25,14 +36,26 @@ final class RectangularPattern {
                 .get()
                 .width();
         this.rows = unmodifiableList(new ArrayList<>(rows));
+        rowMasks = new long[rows.size()];
+        for (int y = 0; y < rowMasks.length; y++) {
+            rowMasks[y] = rows.get(y).mask();
+        }
+        this.orientations = orientations;
+        this.orientation = orientation;
+        stateKey = StateHash.pattern(width, rowMasks);
     }
 
     public static RectangularPattern pattern(List<Row> rows) {
-        return new RectangularPattern(rows);
+        RectangularPattern[] orientations = new RectangularPattern[ORIENTATION_COUNT];
+        orientations[0] = new RectangularPattern(rows, orientations, 0);
+        for (int orientation = 1; orientation < ORIENTATION_COUNT; orientation++) {
+            orientations[orientation] = new RectangularPattern(rotate(orientations[orientation - 1]), orientations, orientation);
+        }
+        return orientations[0];
     }
 
     public static RectangularPattern pattern(Row... rows) {
-        return new RectangularPattern(asList(rows));
+        return pattern(asList(rows));
     }
 
     public static RectangularPattern singleBlock() {
@@ -51,8 +74,56 @@ final class RectangularPattern {
         return rows;
     }
 
+    public long rowMask(int y) {
+        return rowMasks[y];
+    }
+
     public boolean hasElementAt(int x, int y) {
-        return rows.get(y).elementAt(x);
+        checkArgument(x >= 0 && x < width, "x %s outside pattern of width %s", x, width);
+        return (rowMasks[y] >>> x & 1) != 0;
+    }
+
+    /**
+     * @return the pattern rotated clockwise; rotating four times gives back this instance
+     */
+    public RectangularPattern rotated() {
+        return orientations[(orientation + 1) % ORIENTATION_COUNT];
+    }
+
+    /**
+     * @return how much the horizontal offset of a shape changes when the shape is {@link #rotated() rotated}, so that
+     * it turns around its centre
+     */
+    public int rotationOffsetX() {
+        return (width - height()) / 2;
+    }
+
+    /**
+     * @return how much the vertical offset of a shape changes when the shape is {@link #rotated() rotated}
+     */
+    public int rotationOffsetY() {
+        return (height() - width) / 2;
+    }
+
+    /**
+     * @return see {@link StateHash#pattern(int, long[])}
+     */
+    public long stateKey() {
+        return stateKey;
+    }
+
+    private static List<Row> rotate(RectangularPattern pattern) {
+        int newWidth = pattern.height();
+        int newHeight = pattern.width();
+        List<Row> newRows = new ArrayList<>(newHeight);
+        for (int newY = 0; newY < newHeight; newY++) {
+            long newMask = 0;
+            for (int newX = 0; newX < newWidth; newX++) {
+                newMask |= (pattern.rowMask(newX) >>> (newHeight - newY - 1) & 1) << newX;
+            }
+            newRows.add(Row.fromMask(newMask, newWidth));
+        }
+        return newRows;
     }
 
     @Override
@@ -4,72 +4,89 @@ import java.util.Arrays;
 
 import static net.yudichev.ntetris.util.Preconditions.checkArgument;
 
+/**
+ * Row of elements packed into a {@code long}, bit {@code x} set if there is an element at offset {@code x}, so rows are
+ * at most {@value #MAX_WIDTH} elements wide and comparing or combining them is a mask operation.
+ */
 final class Row {
-    private final boolean[] elements;
+    static final int MAX_WIDTH = Long.SIZE;
+    // a single word, shared with the sub-row views
+    private final long[] bits;
     private final int startIndexInclusive;
     private final int endIndexExclusive;
 
-    private Row(boolean[] elements, int startIndexInclusive, int endIndexExclusive) {
+    private Row(long[] bits, int startIndexInclusive, int endIndexExclusive) {
         checkArgument(startIndexInclusive >= 0);
         checkArgument(startIndexInclusive <= endIndexExclusive);
-        checkArgument(endIndexExclusive <= elements.length, "endIndexExclusive %s > elements.length %s", endIndexExclusive, elements.length);
-        this.elements = elements;
+        checkArgument(endIndexExclusive <= MAX_WIDTH, "endIndexExclusive %s > %s", endIndexExclusive, MAX_WIDTH);
+        this.bits = bits;
         this.startIndexInclusive = startIndexInclusive;
         this.endIndexExclusive = endIndexExclusive;
     }
 
     public static Row emptyRow(int width) {
         checkArgument(width >= 0);
-        return row(new boolean[width]);
+        return fromMask(0, width);
     }
 
     public static Row fullRow(int width) {
-        boolean[] elements = new boolean[width];
-        Arrays.fill(elements, true);
-        return new Row(elements, 0, elements.length);
+        return fromMask(widthMask(width), width);
     }
 
     /**
      * @return the row, leftmost elements first
      */
     public static Row row(boolean... elements) {
-        return new Row(elements, 0, elements.length);
+        checkArgument(elements.length <= MAX_WIDTH, "row too wide: %s", elements.length);
+        long mask = 0;
+        for (int x = 0; x < elements.length; x++) {
+            if (elements[x]) {
+                mask |= 1L << x;
+            }
+        }
+        return fromMask(mask, elements.length);
     }
 
-    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
-        // mutable for GC/perf reasons
+    /**
+     * @param mask bit {@code x} set if there is an element at offset {@code x}; bits beyond the width are ignored
+     */
+    public static Row fromMask(long mask, int width) {
+        return new Row(new long[]{mask & widthMask(width)}, 0, width);
+    }
+
+    /**
+     * @return a copy of the elements, for the code that needs them as an array
+     */
     boolean[] getElements() {
+        boolean[] elements = new boolean[width()];
+        for (int x = 0; x < elements.length; x++) {
+            elements[x] = elementAt(x);
+        }
         return elements;
     }
 
+    public long mask() {
+        return bits[0] >>> startIndexInclusive & widthMask(width());
+    }
+
     public int width() {
         return endIndexExclusive - startIndexInclusive;
     }
 
     public boolean overlapsWith(Row anotherRow) {
-        for (int i = 0; i < Math.min(width(), anotherRow.width()); i++) {
-            if (elementAt(i) && anotherRow.elementAt(i)) {
-                return true;
-            }
-        }
-        return false;
+        // each mask only has bits within its own width, so this only compares the common part
+        return (mask() & anotherRow.mask()) != 0;
     }
 
     public void impose(Row anotherRow) {
-        for (int i = 0; i < anotherRow.width(); i++) {
-            checkArgument(!(elementAt(i) && anotherRow.elementAt(i)), "cannot impose: elements would overlap");
-            elements[i + startIndexInclusive] |= anotherRow.elementAt(i);
-        }
+        checkArgument(anotherRow.width() <= width(), "cannot impose: row is too wide");
+        long anotherMask = anotherRow.mask();
+        checkArgument((mask() & anotherMask) == 0, "cannot impose: elements would overlap");
+        bits[0] |= anotherMask << startIndexInclusive;
     }
 
     public boolean isFull() {
-        for (int i = startIndexInclusive; i < endIndexExclusive; i++) {
-            boolean element = elements[i];
-            if (!element) {
-                return false;
-            }
-        }
-        return true;
+        return mask() == widthMask(width());
     }
 
     /**
@@ -80,11 +97,11 @@ final class Row {
      * @return the sub-row
      */
     public Row subRow(int horizontalOffset, int width) {
-        return new Row(elements, horizontalOffset + startIndexInclusive, horizontalOffset + startIndexInclusive + width);
+        return new Row(bits, horizontalOffset + startIndexInclusive, horizontalOffset + startIndexInclusive + width);
     }
 
     public boolean elementAt(int offset) {
-        return elements[offset + startIndexInclusive];
+        return (bits[0] >>> (offset + startIndexInclusive) & 1) != 0;
     }
 
     @Override
@@ -96,12 +113,12 @@ final class Row {
             return false;
         }
         Row other = (Row) obj;
-        return startIndexInclusive == other.startIndexInclusive && endIndexExclusive == other.endIndexExclusive && Arrays.equals(elements, other.elements);
+        return startIndexInclusive == other.startIndexInclusive && endIndexExclusive == other.endIndexExclusive && bits[0] == other.bits[0];
     }
 
     @Override
     public int hashCode() {
-        int result = Arrays.hashCode(elements);
+        int result = Long.hashCode(bits[0]);
         result = 31 * result + startIndexInclusive;
         result = 31 * result + endIndexExclusive;
         return result;
@@ -109,6 +126,10 @@ final class Row {
 
     @Override
     public String toString() {
-        return Arrays.toString(Arrays.copyOfRange(elements, startIndexInclusive, endIndexExclusive));
+        return Arrays.toString(getElements());
+    }
+
+    private static long widthMask(int width) {
+        return width == MAX_WIDTH ? -1L : (1L << width) - 1;
     }
 }
@@ -0,0 +1,8 @@
+package net.yudichev.ntetris.game;
+
+interface RubbleColumnListener {
+    /**
+     * Called when the last cell of the column gets stationary rubble, i.e. the column becomes a candidate for collapse.
+     */
+    void onColumnFullAndStationary(int colIdx);
+}
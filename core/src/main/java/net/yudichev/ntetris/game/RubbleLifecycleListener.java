@@ -1,5 +0,0 @@
-package net.yudichev.ntetris.game;
-
-interface RubbleLifecycleListener {
-    void onRubbleColumnCollapsed(double gameTime, int colIdx);
-}
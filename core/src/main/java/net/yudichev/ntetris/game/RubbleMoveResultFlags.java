@@ -4,6 +4,7 @@ final class RubbleMoveResultFlags {
 
     private static final int FLAG_MOVED = 0x1;
     private static final int FLAG_REQUIRES_MORE_MOVES = 0x2;
+    private static final int FLAG_STOPPED = 0x4;
 
     public static boolean isMoved(int flags) {
         return hasFlag(flags, FLAG_MOVED);
@@ -13,6 +14,13 @@ final class RubbleMoveResultFlags {
         return hasFlag(flags, FLAG_REQUIRES_MORE_MOVES);
     }
 
+    /**
+     * Set together with {@link #FLAG_MOVED} if the block stopped where it was rather than moved to the next position.
+     */
+    public static boolean isStopped(int flags) {
+        return hasFlag(flags, FLAG_STOPPED);
+    }
+
     public static int withRequiresMoreMoves(int flags) {
         return flags | FLAG_REQUIRES_MORE_MOVES;
     }
@@ -21,6 +29,10 @@ final class RubbleMoveResultFlags {
         return flags | FLAG_MOVED;
     }
 
+    public static int withStopped(int flags) {
+        return flags | FLAG_STOPPED;
+    }
+
     private static boolean hasFlag(int flags, int flag) {
         return (flags & flag) != 0;
     }
@@ -0,0 +1,277 @@
+package net.yudichev.ntetris.game;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+import static net.yudichev.ntetris.util.Preconditions.checkNotNull;
+
+/**
+ * Packed occupancy index of the rubble in a scene.
+ * <p>
+ * Occupancy is kept row-major (bit {@code x} of row {@code y}) so that a shape can be tested against the rubble with one
+ * shift-and-AND per shape row. Each column additionally keeps a count of its stationary cells, updated as cells change
+ * state, so that "is this column full of rubble that is not moving" is a single comparison; the listener is told when
+ * the count reaches the scene height. Occupancy is also kept column-major (bit {@code y} of column {@code x}), which is
+ * what finding the rows a shape can be placed at needs.
+ * <p>
+ * All the state is kept in a region of a {@code long} slab, see {@link #slabLength(int, int)}; a slab region of zeroes
+ * is an empty index.
+ */
+final class RubbleOccupancy {
+    private final int height;
+    private final int wordsPerRow;
+    private final RubbleColumnListener columnListener;
+    private final long[] slab;
+    // top row first, words from left to right
+    private final int occupiedRowsBase;
+    private final int stationaryRowsBase;
+    private final int occupiedCountByRowBase;
+    // bit y set if row y has any rubble
+    private final int nonEmptyRowsBase;
+    private final int nonEmptyRowsEnd;
+    private final int stationaryCountByColumnBase;
+    // left column first, words from top to bottom
+    private final int occupiedColumnsBase;
+    private final int wordsPerColumn;
+
+    RubbleOccupancy(int width, int height, RubbleColumnListener columnListener) {
+        this(width, height, columnListener, new long[slabLength(width, height)], 0);
+    }
+
+    RubbleOccupancy(int width, int height, RubbleColumnListener columnListener, long[] slab, int slabOffset) {
+        checkArgument(width > 0 && height > 0, "invalid scene size %sx%s", width, height);
+        checkArgument(slab.length - slabOffset >= slabLength(width, height), "slab too short");
+        this.height = height;
+        this.columnListener = checkNotNull(columnListener);
+        this.slab = slab;
+        wordsPerRow = wordsFor(width);
+        occupiedRowsBase = slabOffset;
+        stationaryRowsBase = occupiedRowsBase + wordsPerRow * height;
+        occupiedCountByRowBase = stationaryRowsBase + wordsPerRow * height;
+        nonEmptyRowsBase = occupiedCountByRowBase + height;
+        nonEmptyRowsEnd = nonEmptyRowsBase + wordsFor(height);
+        stationaryCountByColumnBase = nonEmptyRowsEnd;
+        occupiedColumnsBase = stationaryCountByColumnBase + width;
+        wordsPerColumn = wordsFor(height);
+    }
+
+    /**
+     * @return number of slab elements the index of a scene of the given size takes
+     */
+    public static int slabLength(int width, int height) {
+        return wordsFor(width) * height * 2 + height + wordsFor(height) + width + width * wordsFor(height);
+    }
+
+    public void set(int x, int y, boolean stationary) {
+        int idx = occupiedRowsBase + y * wordsPerRow + (x >>> 6);
+        long bit = 1L << x;
+        if ((slab[idx] & bit) == 0) {
+            slab[idx] |= bit;
+            slab[occupiedColumnsBase + x * wordsPerColumn + (y >>> 6)] |= 1L << y;
+            if (slab[occupiedCountByRowBase + y]++ == 0) {
+                slab[nonEmptyRowsBase + (y >>> 6)] |= 1L << y;
+            }
+        }
+        setStationary(x, y, stationary);
+    }
+
+    public void clear(int x, int y) {
+        int idx = occupiedRowsBase + y * wordsPerRow + (x >>> 6);
+        long bit = 1L << x;
+        if ((slab[idx] & bit) != 0) {
+            slab[idx] &= ~bit;
+            slab[occupiedColumnsBase + x * wordsPerColumn + (y >>> 6)] &= ~(1L << y);
+            if (--slab[occupiedCountByRowBase + y] == 0) {
+                slab[nonEmptyRowsBase + (y >>> 6)] &= ~(1L << y);
+            }
+        }
+        setStationary(x, y, false);
+    }
+
+    /**
+     * Moves the moving block at {@code fromX} to the empty cell at {@code toX} in the same row, without updating the
+     * column-major index, which is shared between rows; the index must be updated with
+     * {@link #indexMoved(int, int, int)} before it is next used.
+     */
+    public void moveInRow(int fromX, int toX, int y) {
+        int rowBase = occupiedRowsBase + y * wordsPerRow;
+        slab[rowBase + (fromX >>> 6)] &= ~(1L << fromX);
+        slab[rowBase + (toX >>> 6)] |= 1L << toX;
+    }
+
+    public void indexMoved(int fromX, int toX, int y) {
+        int wordIdx = y >>> 6;
+        long bit = 1L << y;
+        slab[occupiedColumnsBase + fromX * wordsPerColumn + wordIdx] &= ~bit;
+        slab[occupiedColumnsBase + toX * wordsPerColumn + wordIdx] |= bit;
+    }
+
+    public void setStationary(int x, int y, boolean stationary) {
+        int idx = stationaryRowsBase + y * wordsPerRow + (x >>> 6);
+        long bit = 1L << x;
+        if (stationary == ((slab[idx] & bit) != 0)) {
+            return;
+        }
+        if (stationary) {
+            slab[idx] |= bit;
+            if (++slab[stationaryCountByColumnBase + x] == height) {
+                columnListener.onColumnFullAndStationary(x);
+            }
+        } else {
+            slab[idx] &= ~bit;
+            slab[stationaryCountByColumnBase + x]--;
+        }
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return (slab[occupiedRowsBase + y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @return the first row at or below {@code fromY} that has any rubble, or -1 if none
+     */
+    public int nextNonEmptyRow(int fromY) {
+        int idx = nonEmptyRowsBase + (fromY >>> 6);
+        if (idx >= nonEmptyRowsEnd) {
+            return -1;
+        }
+        long word = slab[idx] & (-1L << fromY);
+        while (word == 0) {
+            if (++idx == nonEmptyRowsEnd) {
+                return -1;
+            }
+            word = slab[idx];
+        }
+        return ((idx - nonEmptyRowsBase) << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return bits of the occupied cells of the row, from column {@code wordIdx * 64}
+     */
+    public long occupiedWord(int y, int wordIdx) {
+        return slab[occupiedRowsBase + y * wordsPerRow + wordIdx];
+    }
+
+    /**
+     * @return true if any element of the pattern placed at the given offset lands on rubble; the pattern must be within the scene
+     */
+    public boolean overlaps(RectangularPattern pattern, int offsetX, int offsetY) {
+        int wordIdx = offsetX >>> 6;
+        int bitIdx = offsetX & 63;
+        boolean spillsOver = bitIdx != 0 && wordIdx + 1 < wordsPerRow;
+        for (int patternY = 0; patternY < pattern.height(); patternY++) {
+            long patternMask = pattern.rowMask(patternY);
+            int rowWordIdx = occupiedRowsBase + (offsetY + patternY) * wordsPerRow + wordIdx;
+            if ((slab[rowWordIdx] & (patternMask << bitIdx)) != 0) {
+                return true;
+            }
+            if (spillsOver && (slab[rowWordIdx + 1] & (patternMask >>> (Long.SIZE - bitIdx))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks in {@code blockedOffsetsY} (a bit set of at least as many words as there are in a column of the scene) the
+     * vertical offsets at which the pattern placed at the given horizontal offset would overlap rubble.
+     */
+    public void markBlockedOffsetsY(RectangularPattern pattern, int offsetX, long[] blockedOffsetsY) {
+        for (int patternY = 0; patternY < pattern.height(); patternY++) {
+            int wordShift = patternY >>> 6;
+            int bitShift = patternY & 63;
+            long patternMask = pattern.rowMask(patternY);
+            while (patternMask != 0) {
+                int columnBase = occupiedColumnsBase + (offsetX + Long.numberOfTrailingZeros(patternMask)) * wordsPerColumn;
+                patternMask &= patternMask - 1;
+                // the element at patternY lands on row y + patternY, so the column is shifted up by patternY
+                for (int wordIdx = 0; wordIdx + wordShift < wordsPerColumn; wordIdx++) {
+                    int sourceIdx = columnBase + wordIdx + wordShift;
+                    long word = slab[sourceIdx] >>> bitShift;
+                    if (bitShift != 0 && wordIdx + wordShift + 1 < wordsPerColumn) {
+                        word |= slab[sourceIdx + 1] << (Long.SIZE - bitShift);
+                    }
+                    blockedOffsetsY[wordIdx] |= word;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how many one-cell steps the pattern placed at the given offset can make in the given direction before any
+     * of its elements lands on rubble, or {@link Integer#MAX_VALUE} if none would; the scene edge is not taken into account
+     */
+    public int freeDistance(RectangularPattern pattern, int offsetX, int offsetY, int directionX) {
+        int distance = Integer.MAX_VALUE;
+        for (int patternY = 0; patternY < pattern.height(); patternY++) {
+            long patternMask = pattern.rowMask(patternY);
+            int y = offsetY + patternY;
+            // only the leading element of each run of elements can be the first to land on rubble
+            long leadingElements = directionX > 0 ? patternMask & ~(patternMask >>> 1) : patternMask & ~(patternMask << 1);
+            while (leadingElements != 0) {
+                int x = offsetX + Long.numberOfTrailingZeros(leadingElements);
+                leadingElements &= leadingElements - 1;
+                if (directionX > 0) {
+                    int obstacleX = nextOccupiedInRow(y, x + 1);
+                    if (obstacleX >= 0) {
+                        distance = Math.min(distance, obstacleX - x - 1);
+                    }
+                } else {
+                    int obstacleX = previousOccupiedInRow(y, x - 1);
+                    if (obstacleX >= 0) {
+                        distance = Math.min(distance, x - obstacleX - 1);
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * @return the first occupied cell of the row at or to the right of {@code fromX}, or -1 if none
+     */
+    public int nextOccupiedInRow(int y, int fromX) {
+        int wordIdx = fromX >>> 6;
+        if (wordIdx >= wordsPerRow) {
+            return -1;
+        }
+        int rowBase = occupiedRowsBase + y * wordsPerRow;
+        long word = slab[rowBase + wordIdx] & (-1L << fromX);
+        while (word == 0) {
+            if (++wordIdx == wordsPerRow) {
+                return -1;
+            }
+            word = slab[rowBase + wordIdx];
+        }
+        return (wordIdx << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @return the first occupied cell of the row at or to the left of {@code fromX}, or -1 if none
+     */
+    public int previousOccupiedInRow(int y, int fromX) {
+        if (fromX < 0) {
+            return -1;
+        }
+        int wordIdx = fromX >>> 6;
+        int rowBase = occupiedRowsBase + y * wordsPerRow;
+        long word = slab[rowBase + wordIdx] & (-1L >>> (Long.SIZE - 1 - (fromX & 63)));
+        while (word == 0) {
+            if (--wordIdx < 0) {
+                return -1;
+            }
+            word = slab[rowBase + wordIdx];
+        }
+        return (wordIdx << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+    }
+
+    public boolean isColumnFullAndStationary(int x) {
+        return slab[stationaryCountByColumnBase + x] == height;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+}
@@ -0,0 +1,19 @@
+package net.yudichev.ntetris.game;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the resolution of groups of scene rows. While rubble moves, rows do not affect each other, so the groups may be
+ * resolved concurrently; whatever a group changes outside of its rows is merged in group order afterwards.
+ */
+public interface RubbleRowsExecutor {
+    /**
+     * @return the most groups worth splitting the rows into
+     */
+    int parallelism();
+
+    /**
+     * Calls {@code resolveGroup} with each of {@code 0 ... groupCount - 1}, returning when all the calls are complete.
+     */
+    void execute(int groupCount, IntConsumer resolveGroup);
+}
@@ -0,0 +1,119 @@
+package net.yudichev.ntetris.game;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_RUBBLE;
+
+/**
+ * Timing wheel of the rubble blocks that are moving, bucketed by the game time their next step is due. Stationary rubble
+ * is never scheduled, so the per-frame cost is proportional to the number of moving blocks rather than to the scene size.
+ * <p>
+ * A block is identified by its cell ({@code y * width + x}); a collected block that is still moving must be scheduled
+ * again under its new cell. A cell that is re-scheduled into another bucket leaves a stale entry behind, which is
+ * dropped when that bucket is next examined.
+ * <p>
+ * The per-cell bookkeeping is kept per row and shared with {@link #fork() forks} copy-on-write, like the rubble itself.
+ */
+final class RubbleScheduler {
+    private static final int SLOT_COUNT = 16; // power of two
+    private static final long SLOT_DURATION = INITIAL_DROP_STEP_DURATION_RUBBLE / SLOT_COUNT;
+    private static final int NOT_SCHEDULED = -1;
+    private static final int CELL_RECORD_LENGTH = 2;
+
+    private final int width;
+    private final IntArray[] slots = new IntArray[SLOT_COUNT];
+    // per cell: slot index plus one (so that zero is not scheduled) and the last move time
+    private final CopyOnWriteRows cells;
+    private long lastCollectedSlot = Long.MIN_VALUE;
+
+    RubbleScheduler(int width, int height) {
+        this.width = width;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new IntArray(false, 16);
+        }
+        cells = new CopyOnWriteRows(height, width * CELL_RECORD_LENGTH);
+    }
+
+    private RubbleScheduler(RubbleScheduler source) {
+        width = source.width;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new IntArray(source.slots[i]);
+        }
+        cells = source.cells.fork();
+        lastCollectedSlot = source.lastCollectedSlot;
+    }
+
+    /**
+     * @return a schedule with the same blocks, independent of this one
+     */
+    public RubbleScheduler fork() {
+        return new RubbleScheduler(this);
+    }
+
+    /**
+     * Schedules the block to be collected once a rubble step has passed since its last move. Blocks that are already
+     * overdue are collected on the next {@link #collectDue(long, IntArray)}.
+     */
+    public void schedule(int cell, long lastMoveTime) {
+        long dueSlot = Math.floorDiv(lastMoveTime + INITIAL_DROP_STEP_DURATION_RUBBLE, SLOT_DURATION);
+        int slotIdx = slotIndex(Math.max(dueSlot, lastCollectedSlot));
+        long[] row = cells.writableRow(cell / width);
+        int record = record(cell);
+        row[record + 1] = lastMoveTime;
+        if (slot(row, record) != slotIdx) {
+            setSlot(row, record, slotIdx);
+            slots[slotIdx].add(cell);
+        }
+    }
+
+    /**
+     * Removes all the blocks that are due a step at the given game time from the schedule and adds their cells to
+     * {@code dueCells}.
+     */
+    public void collectDue(long gameTime, IntArray dueCells) {
+        long currentSlot = Math.floorDiv(gameTime, SLOT_DURATION);
+        // the last collected slot may have had entries that were not due yet, so it is examined again
+        long firstSlot = lastCollectedSlot == Long.MIN_VALUE ? currentSlot - SLOT_COUNT + 1 : Math.max(lastCollectedSlot, currentSlot - SLOT_COUNT + 1);
+        for (long slot = firstSlot; slot <= currentSlot; slot++) {
+            collectDue(gameTime, slotIndex(slot), dueCells);
+        }
+        lastCollectedSlot = currentSlot;
+    }
+
+    private void collectDue(long gameTime, int slotIdx, IntArray dueCells) {
+        IntArray slot = slots[slotIdx];
+        int[] slotCells = slot.items;
+        int retained = 0;
+        for (int i = 0; i < slot.size; i++) {
+            int cell = slotCells[i];
+            long[] row = cells.row(cell / width);
+            int record = record(cell);
+            if (slot(row, record) == slotIdx) {
+                long outstandingDropSteps = (gameTime - row[record + 1]) / INITIAL_DROP_STEP_DURATION_RUBBLE;
+                if (outstandingDropSteps > 0) {
+                    setSlot(cells.writableRow(cell / width), record, NOT_SCHEDULED);
+                    dueCells.add(cell);
+                } else {
+                    slotCells[retained++] = cell;
+                }
+            }
+        }
+        slot.size = retained;
+    }
+
+    private int record(int cell) {
+        return cell % width * CELL_RECORD_LENGTH;
+    }
+
+    private static int slot(long[] row, int record) {
+        return (int) row[record] - 1;
+    }
+
+    private static void setSlot(long[] row, int record, int slotIdx) {
+        row[record] = slotIdx + 1;
+    }
+
+    private static int slotIndex(long slot) {
+        return (int) (slot & (SLOT_COUNT - 1));
+    }
+}
@@ -0,0 +1,283 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.util.Nullable;
+
+import java.util.Arrays;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+
+/**
+ * State of all rubble in a scene, kept in {@code long} arrays with a fixed layout rather than in an object per block:
+ * the {@link RubbleOccupancy occupancy index} in a single slab, and a two-element record per cell in an array per row
+ * ({@code x * 2} within row {@code y}). Moving, stopping or re-directing a block only rewrites array elements; the whole
+ * state can be cleared or copied in bulk, and the garbage collector has next to nothing to trace in it.
+ * <p>
+ * A {@link #fork(RubbleColumnListener) fork} copies the index, which takes a bit per cell, but shares the cell records
+ * with this store row by row until either of them changes a row, see {@link CopyOnWriteRows}.
+ * <p>
+ * Cell attributes mirror {@link BaseRubbleShape}: horizontal speed, invisible wall ({@link #NONE} if none) and the player
+ * whose actions caused the fall ({@code null} if none); plus the block's last move time and the X it is visually
+ * transitioning from ({@link #NONE} if not transitioning). All but the last move time are packed into the first element
+ * of the record, each stored plus one so that a record of zeroes is an empty cell; the last move time is the second
+ * element.
+ * <p>
+ * Each row also keeps the XOR of the {@link StateHash state keys} of its blocks, updated along with the records, see
+ * {@link #stateHash()}.
+ */
+final class RubbleStore {
+    static final int NONE = -1;
+    private static final Player[] PLAYERS = Player.ALL_PLAYERS;
+    private static final int CELL_RECORD_LENGTH = 2;
+    private static final int FALL_CAUSED_BY_SHIFT = 8;
+    private static final int INVISIBLE_WALL_X_SHIFT = 16;
+    private static final int TRANSITION_SOURCE_X_SHIFT = 40;
+    private static final long BYTE_MASK = 0xFFL;
+    private static final long X_MASK = 0xFF_FFFFL;
+    private static final long TRANSITION_SOURCE_X_BITS = X_MASK << TRANSITION_SOURCE_X_SHIFT;
+    private static final long HASHED_MOTION_BITS = ~TRANSITION_SOURCE_X_BITS;
+
+    private final int width;
+    private final int height;
+    private final long[] indexSlab;
+    private final RubbleOccupancy occupancy;
+    private final CopyOnWriteRows cells;
+    // index of the row's state hash, kept after the cell records
+    private final int rowHashIdx;
+
+    RubbleStore(int width, int height, RubbleColumnListener columnListener) {
+        checkArgument(width < X_MASK, "scene too wide: %s", width);
+        this.width = width;
+        this.height = height;
+        indexSlab = new long[RubbleOccupancy.slabLength(width, height)];
+        occupancy = new RubbleOccupancy(width, height, columnListener, indexSlab, 0);
+        rowHashIdx = width * CELL_RECORD_LENGTH;
+        cells = new CopyOnWriteRows(height, rowHashIdx + 1);
+    }
+
+    private RubbleStore(RubbleStore source, RubbleColumnListener columnListener) {
+        width = source.width;
+        height = source.height;
+        indexSlab = source.indexSlab.clone();
+        occupancy = new RubbleOccupancy(width, height, columnListener, indexSlab, 0);
+        rowHashIdx = source.rowHashIdx;
+        cells = source.cells.fork();
+    }
+
+    /**
+     * @return a store with the same rubble, independent of this one
+     */
+    public RubbleStore fork(RubbleColumnListener columnListener) {
+        return new RubbleStore(this, columnListener);
+    }
+
+    public void add(int x, int y, long creationGameTime) {
+        add(x, y, 0, NONE, null, creationGameTime);
+    }
+
+    public void add(int x, int y, int speedX, int invisibleWallX, @Nullable Player fallCausedBy, long creationGameTime) {
+        long[] row = cells.writableRow(y);
+        int record = record(x);
+        if (occupancy.isOccupied(x, y)) {
+            row[rowHashIdx] ^= cellHash(x, y, row[record]);
+        }
+        row[record] = motion(speedX, invisibleWallX, fallCausedBy);
+        row[record + 1] = creationGameTime;
+        row[rowHashIdx] ^= cellHash(x, y, row[record]);
+        occupancy.set(x, y, speedX == 0);
+    }
+
+    public void clear(int x, int y) {
+        long[] row = cells.writableRow(y);
+        int record = record(x);
+        if (occupancy.isOccupied(x, y)) {
+            row[rowHashIdx] ^= cellHash(x, y, row[record]);
+        }
+        row[record] = 0;
+        row[record + 1] = 0;
+        occupancy.clear(x, y);
+    }
+
+    /**
+     * Removes all the rubble. The column listener is not notified.
+     */
+    public void clear() {
+        Arrays.fill(indexSlab, 0);
+        cells.clear();
+    }
+
+    /**
+     * Makes this store an exact copy of another one of the same scene size, sharing the cell records the same way a
+     * fork does. The column listener is not notified.
+     */
+    public void copyFrom(RubbleStore another) {
+        checkArgument(another.width == width && another.height == height,
+                "scene size mismatch: %sx%s vs %sx%s", another.width, another.height, width, height);
+        System.arraycopy(another.indexSlab, 0, indexSlab, 0, indexSlab.length);
+        cells.copyFrom(another.cells);
+    }
+
+    /**
+     * Moves the block at {@code fromX} to the empty cell at {@code toX} in the same row, keeping all its attributes.
+     */
+    public void move(int fromX, int toX, int y) {
+        long[] row = cells.writableRow(y);
+        int from = record(fromX);
+        int to = record(toX);
+        row[to] = row[from];
+        row[to + 1] = row[from + 1];
+        row[rowHashIdx] ^= cellHash(toX, y, row[to]);
+        occupancy.set(toX, y, speedX(row[to]) == 0);
+        clear(fromX, y);
+    }
+
+    /**
+     * Moves the moving block at {@code fromX} to the empty cell at {@code toX} in the same row, like
+     * {@link #move(int, int, int)}, but without updating the column-major index of the rubble, which is shared between
+     * rows; the index must be updated with {@link #indexMoved(int, int, int)} before it is next used. See
+     * {@link #stopInRow(int, int)}.
+     */
+    public void moveInRow(int fromX, int toX, int y) {
+        long[] row = cells.writableRow(y);
+        int from = record(fromX);
+        int to = record(toX);
+        row[rowHashIdx] ^= cellHash(fromX, y, row[from]) ^ cellHash(toX, y, row[from]);
+        row[to] = row[from];
+        row[to + 1] = row[from + 1];
+        row[from] = 0;
+        row[from + 1] = 0;
+        occupancy.moveInRow(fromX, toX, y);
+    }
+
+    public void indexMoved(int fromX, int toX, int y) {
+        occupancy.indexMoved(fromX, toX, y);
+    }
+
+    /**
+     * Stops the block without updating the index of stationary rubble, which is shared between rows; the index must be
+     * updated with {@link #indexStopped(int, int)} before it is next used. Until then, changes to the rubble of the row
+     * (stopping blocks within it and moving them with {@link #moveInRow(int, int, int)}) do not touch any state shared
+     * with other rows, so different rows can be changed concurrently.
+     */
+    public void stopInRow(int x, int y) {
+        long[] row = cells.writableRow(y);
+        int record = record(x);
+        setMotion(row, x, y, row[record] & TRANSITION_SOURCE_X_BITS);
+    }
+
+    public void indexStopped(int x, int y) {
+        occupancy.setStationary(x, y, true);
+    }
+
+    public void setMotion(int x, int y, int speedX, int invisibleWallX, @Nullable Player fallCausedBy) {
+        long[] row = cells.writableRow(y);
+        setMotion(row, x, y, row[record(x)] & TRANSITION_SOURCE_X_BITS | motion(speedX, invisibleWallX, fallCausedBy));
+        occupancy.setStationary(x, y, speedX == 0);
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return occupancy.isOccupied(x, y);
+    }
+
+    /**
+     * @return a copy of the whole occupancy index
+     */
+    public long[] copyOfIndex() {
+        return indexSlab.clone();
+    }
+
+    public int speedX(int x, int y) {
+        return speedX(cells.row(y)[record(x)]);
+    }
+
+    public int invisibleWallX(int x, int y) {
+        return (int) (cells.row(y)[record(x)] >>> INVISIBLE_WALL_X_SHIFT & X_MASK) - 1;
+    }
+
+    @Nullable
+    public Player fallCausedBy(int x, int y) {
+        int ordinal = (int) (cells.row(y)[record(x)] >>> FALL_CAUSED_BY_SHIFT & BYTE_MASK) - 1;
+        return ordinal == NONE ? null : PLAYERS[ordinal];
+    }
+
+    public long lastMoveTime(int x, int y) {
+        return cells.row(y)[record(x) + 1];
+    }
+
+    public void setLastMoveTime(int x, int y, long lastMoveTime) {
+        cells.writableRow(y)[record(x) + 1] = lastMoveTime;
+    }
+
+    public int transitionSourceX(int x, int y) {
+        return (int) (cells.row(y)[record(x)] >>> TRANSITION_SOURCE_X_SHIFT) - 1;
+    }
+
+    public void setTransitionSourceX(int x, int y, int transitionSourceX) {
+        long[] row = cells.writableRow(y);
+        int record = record(x);
+        row[record] = row[record] & ~TRANSITION_SOURCE_X_BITS | (long) (transitionSourceX + 1) << TRANSITION_SOURCE_X_SHIFT;
+    }
+
+    /**
+     * @return XOR of the {@link StateHash#rubbleCell(int, long) keys} of all the blocks, each keyed by its position,
+     * speed, invisible wall and the player that caused its fall; the times and the visual transitions are not part of it
+     */
+    public long stateHash() {
+        long hash = 0;
+        for (int y = occupancy.nextNonEmptyRow(0); y >= 0; y = occupancy.nextNonEmptyRow(y + 1)) {
+            hash ^= cells.row(y)[rowHashIdx];
+        }
+        return hash;
+    }
+
+    public int wordsPerRow() {
+        return occupancy.wordsPerRow();
+    }
+
+    public int nextNonEmptyRow(int fromY) {
+        return occupancy.nextNonEmptyRow(fromY);
+    }
+
+    public long occupiedWord(int y, int wordIdx) {
+        return occupancy.occupiedWord(y, wordIdx);
+    }
+
+    public boolean overlaps(RectangularPattern pattern, int offsetX, int offsetY) {
+        return occupancy.overlaps(pattern, offsetX, offsetY);
+    }
+
+    public void markBlockedOffsetsY(RectangularPattern pattern, int offsetX, long[] blockedOffsetsY) {
+        occupancy.markBlockedOffsetsY(pattern, offsetX, blockedOffsetsY);
+    }
+
+    public int freeDistance(RectangularPattern pattern, int offsetX, int offsetY, int directionX) {
+        return occupancy.freeDistance(pattern, offsetX, offsetY, directionX);
+    }
+
+    public boolean isColumnFullAndStationary(int x) {
+        return occupancy.isColumnFullAndStationary(x);
+    }
+
+    private void setMotion(long[] row, int x, int y, long motion) {
+        int record = record(x);
+        row[rowHashIdx] ^= cellHash(x, y, row[record]) ^ cellHash(x, y, motion);
+        row[record] = motion;
+    }
+
+    private long cellHash(int x, int y, long motion) {
+        return StateHash.rubbleCell(y * width + x, motion & HASHED_MOTION_BITS);
+    }
+
+    private static int record(int x) {
+        return x * CELL_RECORD_LENGTH;
+    }
+
+    private static long motion(int speedX, int invisibleWallX, @Nullable Player fallCausedBy) {
+        return speedX & BYTE_MASK
+                | (fallCausedBy == null ? 0L : fallCausedBy.ordinal() + 1L) << FALL_CAUSED_BY_SHIFT
+                | (long) (invisibleWallX + 1) << INVISIBLE_WALL_X_SHIFT;
+    }
+
+    private static int speedX(long motion) {
+        return (byte) motion;
+    }
+}
@@ -0,0 +1,22 @@
+package net.yudichev.ntetris.game;
+
+import java.util.function.IntConsumer;
+
+public final class SequentialRubbleRowsExecutor implements RubbleRowsExecutor {
+    public static final RubbleRowsExecutor INSTANCE = new SequentialRubbleRowsExecutor();
+
+    private SequentialRubbleRowsExecutor() {
+    }
+
+    @Override
+    public int parallelism() {
+        return 1;
+    }
+
+    @Override
+    public void execute(int groupCount, IntConsumer resolveGroup) {
+        for (int i = 0; i < groupCount; i++) {
+            resolveGroup.accept(i);
+        }
+    }
+}
@@ -2,8 +2,6 @@ package net.yudichev.ntetris.game;
 
 import org.immutables.value.Value;
 
-import java.util.List;
-
 abstract class Shape<B extends Shape<B>> {
 
     @Value.Parameter
@@ -34,19 +32,32 @@ abstract class Shape<B extends Shape<B>> {
     protected abstract B withOffsetX(int horizontalOffset);
 
     public final boolean overlapsWith(B another) {
-        // more likely to overlap in the direction of our movement
-        List<Row> rows = pattern().getRows();
-        if (speedX() > 0) {
-            for (int patternY = rows.size() - 1; patternY >= 0; patternY--) {
-                if (rowOverlaps(another, patternY)) {
-                    return true;
-                }
-            }
-        } else {
-            for (int patternY = 0; patternY < rows.size(); patternY++) {
-                if (rowOverlaps(another, patternY)) {
-                    return true;
-                }
+        return overlapsWithAt(offsetX(), another);
+    }
+
+    /**
+     * @return true if this shape, moved horizontally to the given offset, would overlap another
+     */
+    public final boolean overlapsWithAt(int offsetX, B another) {
+        return overlaps(pattern(), offsetX, offsetY(), another.pattern(), another.offsetX(), another.offsetY());
+    }
+
+    /**
+     * @return true if the patterns placed at the given offsets overlap
+     */
+    static boolean overlaps(RectangularPattern pattern, int offsetX, int offsetY,
+                            RectangularPattern anotherPattern, int anotherOffsetX, int anotherOffsetY) {
+        int anotherRelativeX = anotherOffsetX - offsetX;
+        if (anotherRelativeX >= pattern.width() || -anotherRelativeX >= anotherPattern.width()) {
+            return false;
+        }
+        int fromY = Math.max(offsetY, anotherOffsetY);
+        int toY = Math.min(offsetY + pattern.height(), anotherOffsetY + anotherPattern.height());
+        for (int y = fromY; y < toY; y++) {
+            long anotherMask = anotherPattern.rowMask(y - anotherOffsetY);
+            anotherMask = anotherRelativeX >= 0 ? anotherMask << anotherRelativeX : anotherMask >>> -anotherRelativeX;
+            if ((pattern.rowMask(y - offsetY) & anotherMask) != 0) {
+                return true;
             }
         }
         return false;
@@ -72,19 +83,4 @@ abstract class Shape<B extends Shape<B>> {
     public int toAbsoluteY(int patternY) {
         return offsetY() + patternY;
     }
-
-    private boolean rowOverlaps(B anotherShape, int patternY) {
-        Row candidateRow = pattern().getRows().get(patternY);
-        int absoluteY = toAbsoluteY(patternY);
-        boolean[] elements = candidateRow.getElements();
-        for (int patternX = 0; patternX < elements.length; patternX++) {
-            if (elements[patternX]) {
-                int absoluteX = toAbsoluteX(patternX);
-                if (anotherShape.hasElementAtAbsoluteCoordinates(absoluteY, absoluteX)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
 }
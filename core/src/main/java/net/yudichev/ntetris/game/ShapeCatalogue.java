@@ -0,0 +1,149 @@
+package net.yudichev.ntetris.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.yudichev.ntetris.util.Preconditions.checkArgument;
+
+/**
+ * The set of shapes players get, compiled into lookup tables when loaded: each shape is kept as its spawn pattern, which
+ * carries the row masks of all its orientations and their rotation offsets, plus its spawn bounding box. Spawning and
+ * collision only read these tables, so the number and size of the shapes cost nothing per frame.
+ * <p>
+ * The text form is a list of shapes separated by blank lines; a shape is its name followed by its rows, top row first,
+ * {@code X} marking an element and {@code .} an empty cell, as spawned by the left player. Lines starting with
+ * {@code #} are comments.
+ */
+public final class ShapeCatalogue {
+    private static final char ELEMENT = 'X';
+    private static final char EMPTY = '.';
+    private static final String COMMENT = "#";
+    private static final ShapeCatalogue STANDARD = createStandard();
+
+    private final String[] names;
+    private final RectangularPattern[] spawnPatterns;
+    private final int[] spawnWidths;
+    private final int[] spawnHeights;
+    private final int maxSpawnWidth;
+    private final int maxSpawnHeight;
+
+    private ShapeCatalogue(List<String> names, List<RectangularPattern> spawnPatterns) {
+        checkArgument(!spawnPatterns.isEmpty(), "shape catalogue is empty");
+        this.names = names.toArray(new String[0]);
+        this.spawnPatterns = spawnPatterns.toArray(new RectangularPattern[0]);
+        spawnWidths = new int[this.spawnPatterns.length];
+        spawnHeights = new int[this.spawnPatterns.length];
+        int maxSpawnWidth = 0;
+        int maxSpawnHeight = 0;
+        for (int i = 0; i < this.spawnPatterns.length; i++) {
+            RectangularPattern pattern = this.spawnPatterns[i];
+            spawnWidths[i] = pattern.width();
+            spawnHeights[i] = pattern.height();
+            maxSpawnWidth = Math.max(maxSpawnWidth, pattern.width());
+            maxSpawnHeight = Math.max(maxSpawnHeight, pattern.height());
+        }
+        this.maxSpawnWidth = maxSpawnWidth;
+        this.maxSpawnHeight = maxSpawnHeight;
+    }
+
+    /**
+     * @return the classic shapes, see {@link PlayerShapeType}
+     */
+    public static ShapeCatalogue standard() {
+        return STANDARD;
+    }
+
+    public static ShapeCatalogue parse(String text) {
+        List<String> names = new ArrayList<>();
+        List<RectangularPattern> patterns = new ArrayList<>();
+        String name = null;
+        List<Row> rows = new ArrayList<>();
+        String[] lines = text.split("\r?\n", -1);
+        for (int lineIdx = 0; lineIdx <= lines.length; lineIdx++) {
+            String line = lineIdx == lines.length ? "" : lines[lineIdx].trim();
+            if (line.startsWith(COMMENT)) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                if (name != null) {
+                    checkArgument(!rows.isEmpty(), "line %s: shape %s has no rows", lineIdx + 1, name);
+                    names.add(name);
+                    patterns.add(compile(name, rows));
+                    name = null;
+                    rows.clear();
+                }
+            } else if (name == null) {
+                name = line;
+            } else {
+                rows.add(parseRow(line, lineIdx + 1));
+            }
+        }
+        return new ShapeCatalogue(names, patterns);
+    }
+
+    public int size() {
+        return spawnPatterns.length;
+    }
+
+    public String name(int shapeIdx) {
+        return names[shapeIdx];
+    }
+
+    /**
+     * @return true if every shape can be spawned in a scene of the given size
+     */
+    public boolean fitsScene(int sceneWidth, int sceneHeight) {
+        return maxSpawnWidth <= sceneWidth && maxSpawnHeight <= sceneHeight;
+    }
+
+    RectangularPattern spawnPattern(int shapeIdx) {
+        return spawnPatterns[shapeIdx];
+    }
+
+    int spawnWidth(int shapeIdx) {
+        return spawnWidths[shapeIdx];
+    }
+
+    int spawnHeight(int shapeIdx) {
+        return spawnHeights[shapeIdx];
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", names);
+    }
+
+    private static ShapeCatalogue createStandard() {
+        List<String> names = new ArrayList<>();
+        List<RectangularPattern> patterns = new ArrayList<>();
+        for (PlayerShapeType shapeType : PlayerShapeType.values()) {
+            names.add(shapeType.name());
+            patterns.add(shapeType.getPattern());
+        }
+        return new ShapeCatalogue(names, patterns);
+    }
+
+    private static RectangularPattern compile(String name, List<Row> rows) {
+        for (Row row : rows) {
+            checkArgument(row.width() == rows.get(0).width(), "shape %s has rows of different width", name);
+        }
+        RectangularPattern pattern = RectangularPattern.pattern(rows);
+        boolean hasElements = false;
+        for (int y = 0; y < pattern.height(); y++) {
+            hasElements |= pattern.rowMask(y) != 0;
+        }
+        checkArgument(hasElements, "shape %s has no elements", name);
+        return pattern;
+    }
+
+    private static Row parseRow(String line, int lineNumber) {
+        checkArgument(line.length() <= Row.MAX_WIDTH, "line %s: row too wide", lineNumber);
+        boolean[] elements = new boolean[line.length()];
+        for (int x = 0; x < elements.length; x++) {
+            char c = line.charAt(x);
+            checkArgument(c == ELEMENT || c == EMPTY, "line %s: unexpected '%s', expected '%s' or '%s'", lineNumber, c, ELEMENT, EMPTY);
+            elements[x] = c == ELEMENT;
+        }
+        return Row.row(elements);
+    }
+}
@@ -0,0 +1,57 @@
+package net.yudichev.ntetris.game;
+
+/**
+ * Zobrist-style keys of the parts of a game state, combined with XOR into a 64-bit state hash so that changing a part
+ * only takes XOR-ing its old key out and its new key in.
+ * <p>
+ * Instead of a table of random keys per cell and value, a key is a strong mix (the SplitMix64 finaliser) of what it
+ * stands for, which is just as good for hashing, takes no memory and gives the same keys in every run, so that hashes
+ * from different processes can be compared.
+ */
+final class StateHash {
+    private static final long GOLDEN_GAMMA = 0x9E37_79B9_7F4A_7C15L;
+    private static final long RUBBLE_CELL = 1;
+    private static final long PATTERN = 2;
+    private static final long PLAYER_SHAPE = 3;
+
+    private StateHash() {
+    }
+
+    /**
+     * @param cellIdx {@code y * width + x}
+     * @param motion  anything that tells apart the states of a block in the cell
+     * @return key of a rubble block in the given state
+     */
+    public static long rubbleCell(int cellIdx, long motion) {
+        return mix(combine(combine(RUBBLE_CELL, cellIdx), motion));
+    }
+
+    /**
+     * @return key of the pattern, the same for equal patterns
+     */
+    public static long pattern(int width, long[] rowMasks) {
+        long key = combine(PATTERN, width);
+        for (long rowMask : rowMasks) {
+            key = combine(key, rowMask);
+        }
+        return key;
+    }
+
+    public static long playerShape(Player player, PlayerShape shape) {
+        long key = combine(PLAYER_SHAPE, player.ordinal());
+        key = combine(key, shape.pattern().stateKey());
+        key = combine(key, shape.offsetX());
+        key = combine(key, shape.offsetY());
+        return mix(combine(key, shape.speedX()));
+    }
+
+    private static long combine(long key, long value) {
+        return mix(key + GOLDEN_GAMMA) ^ value;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58_476D_1CE4_E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D0_49BB_1331_11EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -16,7 +16,7 @@ final class StaticScene {
         this.canvas = checkNotNull(canvas);
     }
 
-    public void render(double gameTime) {
+    public void render(long gameTime) {
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
                 canvas.renderBlock(x, y, Sprite.GRID, 1.0);
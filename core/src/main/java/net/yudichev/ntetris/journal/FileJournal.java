@@ -9,9 +9,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+/**
+ * Writes the journal to a file, flushing it once a frame, when the next one begins: the journal is there to replay a
+ * game that failed, so the frames up to the failure must make it to the file, but a flush per record would be a system
+ * call each. Whoever runs the game must {@link #flush()} the journal if a frame fails, and {@link #close()} it.
+ */
 public final class FileJournal implements GameJournal {
 
     private final BufferedWriter writer;
+    private long lastFrameTime;
 
     public FileJournal(Path path) {
         try {
@@ -35,12 +41,14 @@ public final class FileJournal implements GameJournal {
     }
 
     @Override
-    public void beginFrame(double time) {
+    public void beginFrame(long time) {
+        flush();
         try {
-            writer.write("FRM=");
-            writer.write(Double.toString(time));
+            // frames are stored as the ticks since the previous one, which is a short number
+            writer.write("FRD=");
+            writer.write(Long.toString(time - lastFrameTime));
+            lastFrameTime = time;
             writer.write('\n');
-            writer.flush();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -54,7 +62,6 @@ public final class FileJournal implements GameJournal {
             writer.write(',');
             writer.write(Integer.toString(result));
             writer.write('\n');
-            writer.flush();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -66,9 +73,24 @@ public final class FileJournal implements GameJournal {
             writer.write("CRL=");
             writer.write(gameControl.name());
             writer.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void flush() {
+        try {
             writer.flush();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -5,7 +5,10 @@ import net.yudichev.ntetris.Settings;
 
 public interface GameJournal {
 
-    void beginFrame(double time);
+    /**
+     * @param time see {@link net.yudichev.ntetris.GameTime}
+     */
+    void beginFrame(long time);
 
     void randomNextInt(int range, int result);
 
@@ -2,15 +2,17 @@ package net.yudichev.ntetris.journal;
 
 import net.yudichev.ntetris.ControlState;
 import net.yudichev.ntetris.GameControl;
+import net.yudichev.ntetris.GameTime;
 import net.yudichev.ntetris.RandomNumberGenerator;
 import net.yudichev.ntetris.Settings;
+import net.yudichev.ntetris.game.EngineMode;
 import net.yudichev.ntetris.util.Nullable;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static net.yudichev.ntetris.util.MoreThrowables.asUnchecked;
@@ -19,17 +21,19 @@ import static net.yudichev.ntetris.util.Preconditions.*;
 
 public final class JournalPlayer {
     private static final String SETTINGS = "SGS=";
-    private static final String FRAME_START = "FRM=";
+    private static final String FRAME_START_DELTA = "FRD=";
+    // journals recorded before game time was in ticks store the absolute time in milliseconds
+    private static final String LEGACY_FRAME_START = "FRM=";
     private static final String CONTROL = "CRL=";
     private static final String RANDOM = "RND=";
 
     private final BufferedReader reader;
-    private final DoubleConsumer frameStartConsumer;
+    private final LongConsumer frameStartConsumer;
     private final Settings settings;
-    private double gameTime;
+    private long gameTime;
     private String pendingLine;
 
-    public JournalPlayer(String resourcePath, DoubleConsumer frameStartConsumer) {
+    public JournalPlayer(String resourcePath, LongConsumer frameStartConsumer) {
         InputStream resourceAsStream = checkNotNull(getClass().getClassLoader().getResourceAsStream(resourcePath),
                 "Resource not found: %s", resourcePath);
         reader = new BufferedReader(new InputStreamReader(resourceAsStream, UTF_8));
@@ -41,6 +45,8 @@ public final class JournalPlayer {
             settings = Settings.builder()
                     .setSceneWidthBlocks(Integer.parseInt(settingsStr.substring(SETTINGS.length(), splitterIndex)))
                     .setSceneHeightBlocks(Integer.parseInt(settingsStr.substring(splitterIndex + 1)))
+                    // a replay is for finding out what went wrong
+                    .setEngineMode(EngineMode.CHECKED)
                     .build();
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -56,7 +62,6 @@ public final class JournalPlayer {
             String line = readNextLine();
             if (line != null && line.startsWith(CONTROL)) {
                 consumeLine();
-                //noinspection FloatingPointEquality as intended
                 checkState(gameTime == this.gameTime, "Unexpected game time in %s: expected %s, was %s", CONTROL, this.gameTime, gameTime);
                 activeControlConsumer.accept(GameControl.valueOf(line.substring(CONTROL.length())));
             }
@@ -79,12 +84,14 @@ public final class JournalPlayer {
         asUnchecked(() -> {
             while (readNextLine() != null) {
                 String line = consumeLine();
-                if (line.startsWith(FRAME_START)) {
-                    gameTime = Double.parseDouble(line.substring(FRAME_START.length()));
-                    frameStartConsumer.accept(gameTime);
+                if (line.startsWith(FRAME_START_DELTA)) {
+                    gameTime += Long.parseLong(line.substring(FRAME_START_DELTA.length()));
+                } else if (line.startsWith(LEGACY_FRAME_START)) {
+                    gameTime = GameTime.fromMillis(Double.parseDouble(line.substring(LEGACY_FRAME_START.length())));
                 } else {
-                    throw new IllegalStateException("Unexpected journal entry, expected " + FRAME_START + " but was " + line);
+                    throw new IllegalStateException("Unexpected journal entry, expected " + FRAME_START_DELTA + " but was " + line);
                 }
+                frameStartConsumer.accept(gameTime);
             }
         });
     }
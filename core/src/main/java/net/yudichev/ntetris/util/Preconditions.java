@@ -1,5 +1,9 @@
 package net.yudichev.ntetris.util;
 
+/**
+ * The fixed-arity overloads exist so that passing checks on hot paths neither box their arguments nor allocate an array
+ * for them.
+ */
 @SuppressWarnings({"NewExceptionWithoutArguments", "ProhibitedExceptionThrown"})
 public final class Preconditions {
     private Preconditions() {
@@ -23,6 +27,30 @@ public final class Preconditions {
         }
     }
 
+    public static void checkArgument(boolean expression, @Nullable String errorMessageTemplate, int arg) {
+        if (!expression) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, arg));
+        }
+    }
+
+    public static void checkArgument(boolean expression, @Nullable String errorMessageTemplate, int arg1, int arg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, arg1, arg2));
+        }
+    }
+
+    public static void checkArgument(boolean expression, @Nullable String errorMessageTemplate, @Nullable Object arg) {
+        if (!expression) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, arg));
+        }
+    }
+
+    public static void checkArgument(boolean expression, @Nullable String errorMessageTemplate, @Nullable Object arg1, int arg2) {
+        if (!expression) {
+            throw new IllegalArgumentException(format(errorMessageTemplate, arg1, arg2));
+        }
+    }
+
     public static void checkState(boolean expression) {
         if (!expression) {
             throw new IllegalStateException();
@@ -41,6 +69,30 @@ public final class Preconditions {
         }
     }
 
+    public static void checkState(boolean expression, @Nullable String errorMessageTemplate, int arg) {
+        if (!expression) {
+            throw new IllegalStateException(format(errorMessageTemplate, arg));
+        }
+    }
+
+    public static void checkState(boolean expression, @Nullable String errorMessageTemplate, int arg1, int arg2) {
+        if (!expression) {
+            throw new IllegalStateException(format(errorMessageTemplate, arg1, arg2));
+        }
+    }
+
+    public static void checkState(boolean expression, @Nullable String errorMessageTemplate, @Nullable Object arg) {
+        if (!expression) {
+            throw new IllegalStateException(format(errorMessageTemplate, arg));
+        }
+    }
+
+    public static void checkState(boolean expression, @Nullable String errorMessageTemplate, @Nullable Object arg1, int arg2) {
+        if (!expression) {
+            throw new IllegalStateException(format(errorMessageTemplate, arg1, arg2));
+        }
+    }
+
     public static <T> T checkNotNull(T reference) {
         if (reference == null) {
             throw new NullPointerException();
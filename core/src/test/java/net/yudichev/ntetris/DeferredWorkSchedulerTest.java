@@ -0,0 +1,61 @@
+package net.yudichev.ntetris;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.yudichev.ntetris.DeferredWorkScheduler.Priority.HIGH;
+import static net.yudichev.ntetris.DeferredWorkScheduler.Priority.LOW;
+import static net.yudichev.ntetris.DeferredWorkScheduler.Priority.NORMAL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class DeferredWorkSchedulerTest {
+    private static final long TASK_NANOS = 1_000_000;
+    private final List<String> ran = new ArrayList<>();
+    private long nanoTime;
+    // a budget of 3 ms
+    private final DeferredWorkScheduler scheduler = new DeferredWorkScheduler(() -> nanoTime, GameTime.millis(3), 2);
+
+    @Test
+    void runsTasksByPriorityWhileWithinBudget() {
+        scheduler.beginFrame();
+        defer(LOW, "low");
+        defer(NORMAL, "normal1");
+        defer(HIGH, "high");
+        defer(NORMAL, "normal2");
+        scheduler.runPending();
+
+        assertThat(ran).containsExactly("high", "normal1", "normal2");
+        assertThat(scheduler.pendingCount()).isEqualTo(1);
+
+        scheduler.beginFrame();
+        scheduler.runPending();
+
+        assertThat(ran).containsExactly("high", "normal1", "normal2", "low");
+    }
+
+    @Test
+    void runsOverdueTasksWhateverTheBudget() {
+        scheduler.beginFrame();
+        defer(LOW, "starving");
+        for (int frame = 0; frame < 2; frame++) {
+            // a frame that is already over the budget
+            nanoTime += TASK_NANOS * 4;
+            scheduler.runPending();
+            assertThat(ran).isEmpty();
+            scheduler.beginFrame();
+        }
+        nanoTime += TASK_NANOS * 4;
+        scheduler.runPending();
+
+        assertThat(ran).containsExactly("starving");
+    }
+
+    private void defer(DeferredWorkScheduler.Priority priority, String name) {
+        scheduler.defer(priority, () -> {
+            ran.add(name);
+            nanoTime += TASK_NANOS;
+        });
+    }
+}
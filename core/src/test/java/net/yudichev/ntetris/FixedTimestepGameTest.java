@@ -0,0 +1,70 @@
+package net.yudichev.ntetris;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.yudichev.ntetris.GameTime.millis;
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class FixedTimestepGameTest {
+    private final RecordingGame recordingGame = new RecordingGame();
+    private final FixedTimestepGame game = new FixedTimestepGame(recordingGame, 100, 4, CatchUpPolicy.SPREAD);
+
+    @Test
+    void stepsAtFixedRateWhateverTheFrameRate() {
+        game.render(millis(1000));
+        game.render(millis(1004));
+        game.render(millis(1015));
+        game.render(millis(1045));
+
+        assertThat(recordingGame.calls).containsExactly(
+                "step 1000", "draw 1000",
+                "draw 1004",
+                "step 1010", "draw 1015",
+                "step 1020", "step 1030", "step 1040", "draw 1045");
+    }
+
+    @Test
+    void spreadsStepsDueAfterHitchOverFollowingFrames() {
+        FixedTimestepGame slowGame = new FixedTimestepGame(recordingGame, 100, 2, CatchUpPolicy.SPREAD);
+        slowGame.render(millis(1000));
+        slowGame.render(millis(1055));
+        slowGame.render(millis(1060));
+        slowGame.render(millis(1065));
+
+        assertThat(recordingGame.calls).containsExactly(
+                "step 1000", "draw 1000",
+                "step 1010", "step 1020", "draw 1030",
+                "step 1030", "step 1040", "draw 1050",
+                "step 1050", "step 1060", "draw 1065");
+    }
+
+    @Test
+    void dropsStepsDueAfterHitch() {
+        FixedTimestepGame slowGame = new FixedTimestepGame(recordingGame, 100, 2, CatchUpPolicy.DROP);
+        slowGame.render(millis(1000));
+        slowGame.render(millis(1055));
+        slowGame.render(millis(1060));
+
+        assertThat(recordingGame.calls).containsExactly(
+                "step 1000", "draw 1000",
+                "step 1010", "step 1020", "draw 1025",
+                "step 1030", "draw 1030");
+    }
+
+    private static final class RecordingGame implements SimulatedGame {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void step(long gameTime) {
+            calls.add("step " + gameTime / GameTime.TICKS_PER_MILLI);
+        }
+
+        @Override
+        public void draw(long gameTime) {
+            calls.add("draw " + gameTime / GameTime.TICKS_PER_MILLI);
+        }
+    }
+}
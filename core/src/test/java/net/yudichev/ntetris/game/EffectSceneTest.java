@@ -0,0 +1,51 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static net.yudichev.ntetris.GameTime.millis;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+final class EffectSceneTest {
+    private static final int HEIGHT = 2;
+    @Mock
+    GameCanvas canvas;
+
+    @Test
+    void collapseEffectIsTimedFromTheCollapse() {
+        EffectScene effectScene = new EffectScene(HEIGHT, canvas);
+        effectScene.collapseRubble(3, millis(100));
+
+        // first rendered half way through the effect
+        effectScene.render(millis(350));
+
+        verify(canvas).renderBlock(3, 0, Sprite.RUBBLE_NORMAL, 0.5);
+        verify(canvas).renderBlock(3, 1, Sprite.RUBBLE_NORMAL, 0.5);
+        verifyNoMoreInteractions(canvas);
+    }
+
+    @Test
+    void collapsingColumnAgainRestartsItsEffect() {
+        EffectScene effectScene = new EffectScene(HEIGHT, canvas);
+        effectScene.collapseRubble(3, 0);
+        effectScene.collapseRubble(5, 0);
+        effectScene.render(millis(250));
+        clearInvocations(canvas);
+
+        effectScene.collapseRubble(3, millis(250));
+        effectScene.render(millis(375));
+
+        verify(canvas).renderBlock(3, 0, Sprite.RUBBLE_NORMAL, 0.75);
+        verify(canvas).renderBlock(3, 1, Sprite.RUBBLE_NORMAL, 0.75);
+        verify(canvas).renderBlock(5, 0, Sprite.RUBBLE_NORMAL, 0.25);
+        verify(canvas).renderBlock(5, 1, Sprite.RUBBLE_NORMAL, 0.25);
+        verifyNoMoreInteractions(canvas);
+    }
+}
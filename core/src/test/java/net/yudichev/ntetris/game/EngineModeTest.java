@@ -0,0 +1,48 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.journal.FileJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class EngineModeTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void modesPlayTheSameGame() throws IOException {
+        for (int seed = 0; seed < 10; seed++) {
+            Path checkedJournal = dir.resolve("checked-" + seed + ".txt");
+            Path productionJournal = dir.resolve("production-" + seed + ".txt");
+
+            List<Long> checkedStateHashes = play(EngineMode.CHECKED, seed, checkedJournal);
+            List<Long> productionStateHashes = play(EngineMode.PRODUCTION, seed, productionJournal);
+
+            assertThat(Files.readAllLines(productionJournal)).isEqualTo(Files.readAllLines(checkedJournal));
+            assertThat(productionStateHashes).hasSize(checkedStateHashes.size()).isEqualTo(checkedStateHashes);
+        }
+    }
+
+    private static List<Long> play(EngineMode engineMode, int seed, Path journalPath) {
+        List<Long> stateHashes = new ArrayList<>();
+        FileJournal journal = new FileJournal(journalPath);
+        try {
+            RandomGames.play(new Random(seed),
+                    engineMode,
+                    GameEngineFactory.reference(SequentialRubbleRowsExecutor.INSTANCE),
+                    journal,
+                    tetris -> stateHashes.add(tetris.stateHash()));
+        } finally {
+            journal.close();
+        }
+        return stateHashes;
+    }
+}
@@ -0,0 +1,49 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.NoopGameJournal;
+import net.yudichev.ntetris.journal.JournalPlayer;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Plays games with a candidate engine in lockstep with the reference one, see {@link LockstepGameEngine}; an
+ * {@link AssertionError} reports the first frame at which the engines diverged.
+ */
+final class EngineVerifier {
+    private EngineVerifier() {
+    }
+
+    /**
+     * Replays the recorded journal.
+     *
+     * @param setUp prepares the game the journal was recorded with, before the first frame
+     */
+    static void verifyJournal(String journalResourcePath, GameEngineFactory candidateFactory, Consumer<NTetris> setUp) {
+        NTetris[] tetris = new NTetris[1];
+        JournalPlayer player = new JournalPlayer(journalResourcePath, gameTime -> tetris[0].render(gameTime));
+        try {
+            tetris[0] = new NTetris(player.settings(),
+                    RandomGames.CANVAS,
+                    RandomGames.SOUNDS,
+                    player.controlState(),
+                    new NoopGameJournal(),
+                    player.randomNumberGenerator(),
+                    LockstepGameEngine.verifying(candidateFactory));
+            setUp.accept(tetris[0]);
+            player.play();
+        } finally {
+            player.close();
+        }
+    }
+
+    /**
+     * Plays {@link RandomGames random games}.
+     */
+    static void verifyRandomGames(GameEngineFactory candidateFactory, long seed, int gameCount) {
+        Random random = new Random(seed);
+        for (int game = 0; game < gameCount; game++) {
+            RandomGames.play(random, EngineMode.CHECKED, LockstepGameEngine.verifying(candidateFactory), new NoopGameJournal(), tetris -> {});
+        }
+    }
+}
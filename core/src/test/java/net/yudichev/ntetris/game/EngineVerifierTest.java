@@ -0,0 +1,47 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class EngineVerifierTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void parallelRowsEngineAgreesWithReference() {
+        GameEngineFactory candidateFactory = GameEngineFactory.reference(new ParallelRubbleRowsExecutor(pool));
+
+        EngineVerifier.verifyJournal("journal-hangingScenario1.txt", candidateFactory,
+                tetris -> tetris.addRubbleColumnWithHole(10, 6));
+        EngineVerifier.verifyRandomGames(candidateFactory, 0, 10);
+    }
+
+    @Test
+    void reportsFirstDivergingFrame() {
+        // an engine that leaves the rubble of all but the top rows where it is
+        GameEngineFactory candidateFactory = GameEngineFactory.reference(new RubbleRowsExecutor() {
+            @Override
+            public int parallelism() {
+                return 2;
+            }
+
+            @Override
+            public void execute(int groupCount, IntConsumer resolveGroup) {
+                resolveGroup.accept(0);
+            }
+        });
+
+        assertThatThrownBy(() -> EngineVerifier.verifyRandomGames(candidateFactory, 0, 10))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageMatching("(?s)engines diverged at frame \\d+ \\(game time .*\\) on moveRubble, scenes differ\nreference:.*\ncandidate:.*");
+    }
+}
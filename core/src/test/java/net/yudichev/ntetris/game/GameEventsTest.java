@@ -0,0 +1,29 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class GameEventsTest {
+    @Test
+    void recordingAnEventWhileDispatchingFails() {
+        GameEvents events = new GameEvents();
+        events.add(GameEventType.SHAPE_ROTATED, 100, Player.LEFT, 0);
+
+        assertThatThrownBy(() -> events.dispatchTo(Collections.singletonList(
+                (type, gameTime, player, value) -> events.add(GameEventType.SHAPE_MOVED, gameTime, player, 1))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("SHAPE_MOVED");
+
+        // dispatching again works once the failed dispatch is over
+        List<GameEventType> dispatchedTypes = new ArrayList<>();
+        events.dispatchTo(Collections.singletonList((type, gameTime, player, value) -> dispatchedTypes.add(type)));
+        assertThat(dispatchedTypes).containsExactly(GameEventType.SHAPE_ROTATED);
+        assertThat(events.size()).isZero();
+    }
+}
@@ -0,0 +1,104 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.GameTime;
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
+
+/**
+ * Per-frame cost of the game scene on boards of increasing size with the same amount of rubble on them and in motion.
+ * The cost should stay roughly flat as the board grows. Not part of the test suite, run {@link #main(String[])}.
+ */
+final class GameSceneBenchmark {
+    private static final int[][] SCENE_SIZES = {{20, 12}, {100, 60}, {500, 300}};
+    private static final int MOVING_ROWS = 8;
+    private static final int TRAIN_LENGTH = 8;
+    private static final int STATIONARY_COLUMNS = 4;
+    private static final long FRAME_DURATION = GameTime.fromMillis(1000.0 / 60);
+    // short enough for the trains not to reach the edge on the smallest board
+    private static final int FRAMES_PER_ROUND = 120;
+    private static final int WARM_UP_ROUNDS = 300;
+    private static final int MEASURED_ROUNDS = 300;
+
+    private GameSceneBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        CountingCanvas canvas = new CountingCanvas();
+        for (int[] sceneSize : SCENE_SIZES) {
+            int width = sceneSize[0];
+            int height = sceneSize[1];
+            String rubble = rubble(width, height);
+            runRounds(width, height, rubble, canvas, WARM_UP_ROUNDS);
+            long nanos = runRounds(width, height, rubble, canvas, MEASURED_ROUNDS);
+            System.out.printf("%dx%d: %.2f us/frame%n", width, height, nanos / 1000.0 / MEASURED_ROUNDS / FRAMES_PER_ROUND);
+        }
+        System.out.println("blocks rendered: " + canvas.blocksRendered);
+    }
+
+    private static long runRounds(int width, int height, String rubble, GameCanvas canvas, int rounds) {
+        long nanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            GameEvents events = new GameEvents();
+            GameScene gameScene = new GameScene(width, height, events, SequentialRubbleRowsExecutor.INSTANCE, EngineMode.PRODUCTION);
+            long gameTime = 0;
+            gameScene.onFrameStart(gameTime);
+            gameScene.initialiseRubbleFromPrettyPrint(gameTime, rubble);
+
+            long start = System.nanoTime();
+            for (int frame = 0; frame < FRAMES_PER_ROUND; frame++) {
+                gameTime += FRAME_DURATION;
+                gameScene.onFrameStart(gameTime);
+                gameScene.moveRubble();
+                gameScene.render(canvas, gameTime);
+                events.clear();
+            }
+            nanos += System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    /**
+     * Trains of rubble moving left along the top rows, plus a few stationary columns on the left of the bottom rows.
+     */
+    private static String rubble(int width, int height) {
+        StringBuilder sb = new StringBuilder(height * (width * 5 + 1));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (y < MOVING_ROWS && x >= width - TRAIN_LENGTH) {
+                    sb.append("[<00]");
+                } else if (y >= height - MOVING_ROWS && x < STATIONARY_COLUMNS) {
+                    sb.append("[ O ]");
+                } else {
+                    sb.append("[   ]");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static final class CountingCanvas implements GameCanvas {
+        long blocksRendered;
+
+        @Override
+        public void beginFrame() {
+        }
+
+        @Override
+        public void renderBlock(double blockX, double blockY, Sprite sprite, double scale) {
+            blocksRendered++;
+        }
+
+        @Override
+        public void renderText(String text) {
+        }
+
+        @Override
+        public void endFrame() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,24 +1,29 @@
 package net.yudichev.ntetris.game;
 
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static net.yudichev.ntetris.game.GameConstants.DROP_TRANSITION_STEP_DURATION;
 import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_PLAYER;
 import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_RUBBLE;
 import static net.yudichev.ntetris.game.RectangularPattern.pattern;
 import static net.yudichev.ntetris.game.Row.row;
 import static net.yudichev.ntetris.game.ShapeConstants.X;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class GameSceneTest {
     @Mock
-    RubbleLifecycleListener rubbleLifecycleListener;
+    GameCanvas canvas;
+    private final GameEvents events = new GameEvents();
     private GameScene gameScene;
-    private double gameTime;
+    private long gameTime;
 
     @BeforeEach
     void setUp() {
@@ -26,7 +31,7 @@ class GameSceneTest {
 
     @Test
     void collapseScenario2() {
-        gameScene = new GameScene(4, 4, rubbleLifecycleListener);
+        gameScene = new GameScene(4, 4, events);
         advanceTimeAndStartFrame(0);
 
         /*
@@ -52,6 +57,7 @@ class GameSceneTest {
         ), 1, 3, -1));
 
         gameScene.dropShape(Player.RIGHT);
+        assertThat(events).hasToString("[SHAPE_SPAWNED@0:RIGHT=0, BECAME_RUBBLE@0:RIGHT=0, COLUMN_COLLAPSED@0:null=1, COLUMN_COLLAPSED@0:null=2]");
 
         // three steps as need to move two columns + one step to stop all moving rubble
         advanceTimeAndStartFrame(INITIAL_DROP_STEP_DURATION_RUBBLE);
@@ -70,7 +76,7 @@ class GameSceneTest {
 
     @Test
     void collapseScenario() {
-        gameScene = new GameScene(6, 6, rubbleLifecycleListener);
+        gameScene = new GameScene(6, 6, events);
         advanceTimeAndStartFrame(0);
 
         gameScene.initialiseRubbleFromPrettyPrint(gameTime, "" +
@@ -130,14 +136,14 @@ class GameSceneTest {
 
     @Test
     void collapseScenario3_DoesDropUnrelatedRubble() {
-        gameScene = new GameScene(4, 4, rubbleLifecycleListener);
+        gameScene = new GameScene(4, 4, events);
         gameScene.initialiseRubbleFromPrettyPrint(gameTime, "" +
                 "[   ][ O ][   ][ O ]\n" +
                 "[ O ][ O ][   ][ O ]\n" +
                 "[ O ][ O ][   ][ O ]\n" +
                 "[ O ][   ][   ][   ]");
 
-        advanceTimeAndStartFrame(0.0);
+        advanceTimeAndStartFrame(0);
 
         /*
          * _ R _ R
@@ -163,12 +169,90 @@ class GameSceneTest {
                 "[ O ][ O ][   ][   ]");
     }
 
-    private void advanceTimeAndStartFrame(double timeIncrement) {
+    @Test
+    void trainOfRubbleMovesTogether() {
+        gameScene = new GameScene(8, 2, events);
+        gameScene.initialiseRubbleFromPrettyPrint(gameTime, "" +
+                "[>07][>07][>07][>07][   ][   ][   ][   ]\n" +
+                "[   ][   ][   ][   ][<00][<00][<00][<00]");
+
+        advanceTimeAndStartFrame(INITIAL_DROP_STEP_DURATION_RUBBLE * 2);
+        moveRubble();
+
+        assertThat(gameScene.prettyPrintRubble()).contains("\n" +
+                "[   ][   ][>07][>07][>07][>07][   ][   ]\n" +
+                "[   ][   ][<00][<00][<00][<00][   ][   ]");
+    }
+
+    @Test
+    void forkMovesIndependently() {
+        gameScene = new GameScene(8, 2, events);
+        gameScene.initialiseRubbleFromPrettyPrint(gameTime, "" +
+                "[>07][>07][   ][   ][   ][   ][   ][   ]\n" +
+                "[   ][   ][   ][   ][   ][   ][<00][<00]");
+        GameScene fork = gameScene.fork(new GameEvents());
+
+        advanceTimeAndStartFrame(INITIAL_DROP_STEP_DURATION_RUBBLE * 2);
+        moveRubble();
+
+        assertThat(gameScene.prettyPrintRubble()).contains("\n" +
+                "[   ][   ][>07][>07][   ][   ][   ][   ]\n" +
+                "[   ][   ][   ][   ][<00][<00][   ][   ]");
+        assertThat(fork.prettyPrintRubble()).contains("\n" +
+                "[>07][>07][   ][   ][   ][   ][   ][   ]\n" +
+                "[   ][   ][   ][   ][   ][   ][<00][<00]");
+
+        fork.onFrameStart(gameTime);
+        fork.moveRubble();
+
+        assertThat(fork.prettyPrintRubble()).isEqualTo(gameScene.prettyPrintRubble());
+    }
+
+    @Test
+    void stateHashDependsOnStateOnly() {
+        gameScene = new GameScene(8, 2, events);
+        gameScene.initialiseRubbleFromPrettyPrint(gameTime, "" +
+                "[>07][>07][>07][>07][   ][   ][   ][   ]\n" +
+                "[   ][   ][   ][   ][<00][<00][<00][<00]");
+        long initialHash = gameScene.stateHash();
+
+        advanceTimeAndStartFrame(INITIAL_DROP_STEP_DURATION_RUBBLE * 2);
+        moveRubble();
+
+        GameScene sameScene = new GameScene(8, 2, events);
+        sameScene.initialiseRubbleFromPrettyPrint(0, "" +
+                "[   ][   ][>07][>07][>07][>07][   ][   ]\n" +
+                "[   ][   ][<00][<00][<00][<00][   ][   ]");
+        assertThat(gameScene.stateHash()).isNotEqualTo(initialHash).isEqualTo(sameScene.stateHash());
+
+        PlayerShape shape = PlayerShape.of(pattern(row(X)), 0, 1, 1);
+        gameScene.attemptAddPlayerShape(Player.LEFT, shape);
+        assertThat(gameScene.stateHash()).isNotEqualTo(sameScene.stateHash());
+        gameScene.deletePlayerShape(Player.LEFT);
+        assertThat(gameScene.stateHash()).isEqualTo(sameScene.stateHash());
+    }
+
+    @Test
+    void movedRubbleIsDrawnPartWayThroughTransition() {
+        gameScene = new GameScene(4, 1, events);
+        advanceTimeAndStartFrame(0);
+        gameScene.initialiseRubbleFromPrettyPrint(gameTime, "[>03][   ][   ][   ]");
+
+        advanceTimeAndStartFrame(INITIAL_DROP_STEP_DURATION_RUBBLE);
+        moveRubble();
+        gameScene.render(canvas, gameTime + DROP_TRANSITION_STEP_DURATION / 4);
+        gameScene.render(canvas, gameTime + DROP_TRANSITION_STEP_DURATION);
+
+        verify(canvas).renderBlock(0.25, 0, Sprite.RUBBLE_NORMAL, 1.0);
+        verify(canvas).renderBlock(1, 0, Sprite.RUBBLE_NORMAL, 1.0);
+    }
+
+    private void advanceTimeAndStartFrame(long timeIncrement) {
         gameTime += timeIncrement;
         gameScene.onFrameStart(gameTime);
     }
 
     private void moveRubble() {
-        assertThat(gameScene.moveRubble()).isFalse();
+        gameScene.moveRubble();
     }
 }
\ No newline at end of file
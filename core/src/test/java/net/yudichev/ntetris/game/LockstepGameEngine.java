@@ -0,0 +1,194 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.util.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Runs a candidate engine in lockstep with the reference one: every call is made on both, and after every call their
+ * results, events and scenes must be the same, otherwise an {@link AssertionError} reports the first frame
+ * at which they diverged with both scenes pretty-printed. The game sees the reference engine's results and events.
+ */
+final class LockstepGameEngine implements GameEngine {
+    private static final GameEngineFactory REFERENCE = GameEngineFactory.reference(SequentialRubbleRowsExecutor.INSTANCE);
+    private final GameEvents events;
+    private final GameEvents referenceEvents = new GameEvents();
+    private final GameEvents candidateEvents = new GameEvents();
+    private final GameEngine reference;
+    private final GameEngine candidate;
+    private int frame;
+    private long gameTime;
+
+    private LockstepGameEngine(GameEvents events,
+                               Function<GameEvents, GameEngine> referenceFactory,
+                               Function<GameEvents, GameEngine> candidateFactory) {
+        this.events = events;
+        reference = referenceFactory.apply(referenceEvents);
+        candidate = candidateFactory.apply(candidateEvents);
+    }
+
+    /**
+     * @return factory of engines that run engines of the candidate factory in lockstep with the reference ones
+     */
+    static GameEngineFactory verifying(GameEngineFactory candidateFactory) {
+        return (width, height, events, engineMode) -> {
+            LockstepGameEngine engine = new LockstepGameEngine(events,
+                    engineEvents -> REFERENCE.create(width, height, engineEvents, engineMode),
+                    engineEvents -> candidateFactory.create(width, height, engineEvents, engineMode));
+            engine.verify("creation", null, null);
+            return engine;
+        };
+    }
+
+    @Override
+    public int getWidth() {
+        return verify("getWidth", reference.getWidth(), candidate.getWidth());
+    }
+
+    @Override
+    public int getHeight() {
+        return verify("getHeight", reference.getHeight(), candidate.getHeight());
+    }
+
+    @Override
+    public void onFrameStart(long gameTime) {
+        frame++;
+        this.gameTime = gameTime;
+        reference.onFrameStart(gameTime);
+        candidate.onFrameStart(gameTime);
+        verify("onFrameStart", null, null);
+    }
+
+    @Override
+    public void moveRubble() {
+        reference.moveRubble();
+        candidate.moveRubble();
+        verify("moveRubble", null, null);
+    }
+
+    @Override
+    public void render(GameCanvas canvas, long renderTime) {
+        reference.render(canvas, renderTime);
+    }
+
+    @Override
+    public void addRubbleColumnWithHole(int x, int holeIndex) {
+        reference.addRubbleColumnWithHole(x, holeIndex);
+        candidate.addRubbleColumnWithHole(x, holeIndex);
+        verify("addRubbleColumnWithHole", null, null);
+    }
+
+    @Override
+    public void initialiseRubbleFromPrettyPrint(long gameTime, String prettyPrint) {
+        reference.initialiseRubbleFromPrettyPrint(gameTime, prettyPrint);
+        candidate.initialiseRubbleFromPrettyPrint(gameTime, prettyPrint);
+        verify("initialiseRubbleFromPrettyPrint", null, null);
+    }
+
+    @Override
+    public String prettyPrintRubble() {
+        return reference.prettyPrintRubble();
+    }
+
+    @Override
+    public long stateHash() {
+        return reference.stateHash();
+    }
+
+    @Override
+    public PlayerShape playerShape(RectangularPattern pattern, int offsetX, int offsetY, int speedX) {
+        return verify("playerShape",
+                reference.playerShape(pattern, offsetX, offsetY, speedX),
+                candidate.playerShape(pattern, offsetX, offsetY, speedX));
+    }
+
+    @Override
+    public boolean attemptAddPlayerShape(Player player, PlayerShape shape) {
+        return verify("attemptAddPlayerShape " + player,
+                reference.attemptAddPlayerShape(player, shape),
+                candidate.attemptAddPlayerShape(player, shape));
+    }
+
+    @Override
+    public void markBlockedSpawnOffsetsY(Player player, RectangularPattern pattern, int offsetX, long[] blockedOffsetsY) {
+        long[] candidateBlockedOffsetsY = blockedOffsetsY.clone();
+        reference.markBlockedSpawnOffsetsY(player, pattern, offsetX, blockedOffsetsY);
+        candidate.markBlockedSpawnOffsetsY(player, pattern, offsetX, candidateBlockedOffsetsY);
+        verify("markBlockedSpawnOffsetsY " + player, Arrays.toString(blockedOffsetsY), Arrays.toString(candidateBlockedOffsetsY));
+    }
+
+    @Override
+    public void movePlayerShapeVertically(Player player, int offsetY) {
+        reference.movePlayerShapeVertically(player, offsetY);
+        candidate.movePlayerShapeVertically(player, offsetY);
+        verify("movePlayerShapeVertically " + player, null, null);
+    }
+
+    @Override
+    public void rotatePlayersShape(Player player) {
+        reference.rotatePlayersShape(player);
+        candidate.rotatePlayersShape(player);
+        verify("rotatePlayersShape " + player, null, null);
+    }
+
+    @Nullable
+    @Override
+    public ShapeLoweringResult dropShape(Player player) {
+        return verify("dropShape " + player, reference.dropShape(player), candidate.dropShape(player));
+    }
+
+    @Nullable
+    @Override
+    public ShapeLoweringResult lowerShape(Player player) {
+        return verify("lowerShape " + player, reference.lowerShape(player), candidate.lowerShape(player));
+    }
+
+    @Override
+    public void deletePlayerShape(Player player) {
+        reference.deletePlayerShape(player);
+        candidate.deletePlayerShape(player);
+        verify("deletePlayerShape " + player, null, null);
+    }
+
+    @Override
+    public Map<Player, PlayerShape> getPlayerShapesByPlayer() {
+        return verify("getPlayerShapesByPlayer", reference.getPlayerShapesByPlayer(), candidate.getPlayerShapesByPlayer());
+    }
+
+    @Override
+    public GameEngine fork(GameEvents events) {
+        LockstepGameEngine fork = new LockstepGameEngine(events, reference::fork, candidate::fork);
+        fork.frame = frame;
+        fork.gameTime = gameTime;
+        return fork;
+    }
+
+    @Nullable
+    private <T> T verify(String call, @Nullable T referenceResult, @Nullable T candidateResult) {
+        String difference = null;
+        if (!Objects.equals(referenceResult, candidateResult)) {
+            difference = "results differ: " + referenceResult + " vs " + candidateResult;
+        } else if (!referenceEvents.toString().equals(candidateEvents.toString())) {
+            difference = "events differ: " + referenceEvents + " vs " + candidateEvents;
+        } else if (!reference.prettyPrintRubble().equals(candidate.prettyPrintRubble())) {
+            difference = "scenes differ";
+        } else if (reference.stateHash() != candidate.stateHash()) {
+            difference = "state hashes differ: " + reference.stateHash() + " vs " + candidate.stateHash();
+        }
+        if (difference != null) {
+            throw new AssertionError("engines diverged at frame " + frame + " (game time " + gameTime + ") on " + call + ", " + difference +
+                    "\nreference:" + reference.prettyPrintRubble() +
+                    "\ncandidate:" + candidate.prettyPrintRubble());
+        }
+        for (int i = 0; i < referenceEvents.size(); i++) {
+            events.add(referenceEvents.type(i), referenceEvents.gameTime(i), referenceEvents.player(i), referenceEvents.value(i));
+        }
+        referenceEvents.clear();
+        candidateEvents.clear();
+        return referenceResult;
+    }
+}
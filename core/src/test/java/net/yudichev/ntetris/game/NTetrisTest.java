@@ -1,15 +1,24 @@
 package net.yudichev.ntetris.game;
 
+import net.yudichev.ntetris.ControlState;
+import net.yudichev.ntetris.GameControl;
+import net.yudichev.ntetris.GameTime;
 import net.yudichev.ntetris.NoopGameJournal;
+import net.yudichev.ntetris.RandomNumberGenerator;
 import net.yudichev.ntetris.Settings;
 import net.yudichev.ntetris.canvas.GameCanvas;
 import net.yudichev.ntetris.sound.Sounds;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 
 import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_PLAYER;
 import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_RUBBLE;
@@ -26,7 +35,7 @@ class NTetrisTest {
     @Mock
     Sounds sounds;
     private NTetris tetris;
-    private double gameTime;
+    private long gameTime;
 
     @Test
     void scenario1() {
@@ -100,7 +109,7 @@ class NTetrisTest {
         startGameTime();
 
         for (int i = 0; i < 200; i++) {
-            advanceGameTimeBy(1000.0 / 60);
+            advanceGameTimeBy(GameTime.fromMillis(1000.0 / 60));
         }
 
         assertThat(tetris.prettyPrintRubble()).contains("\n" +
@@ -139,11 +148,18 @@ class NTetrisTest {
         tetris.initialiseFromPrettyPrint(gameTime, rubble,
                 PlayerShape.of(singleBlock(), 0, 0, 1),
                 PlayerShape.of(pattern(row(true, true, true)), 4, 3, -1));
+        List<Integer> collapsedColumns = new ArrayList<>();
+        tetris.subscribe((type, eventGameTime, player, value) -> {
+            if (type == GameEventType.COLUMN_COLLAPSED) {
+                collapsedColumns.add(value);
+            }
+        });
 
         startGameTime();
 
         // drop the player shape
         advanceGameTimeBy(INITIAL_DROP_STEP_DURATION_PLAYER);
+        assertThat(collapsedColumns).containsExactly(4, 6);
 
         assertThat(tetris.prettyPrintRubble()).contains("" +
                 // 0    1    2    3    4    5    6    7    8    9   10   11
@@ -168,21 +184,111 @@ class NTetrisTest {
         );
     }
 
-    private void advanceGameTimeBy(double diff) {
+    /**
+     * Forks a game and plays the fork alongside a copy of the game, played the same way from the start, with the same
+     * controls and random numbers; the source game plays on too, and none of them must tell from the others.
+     */
+    @ParameterizedTest
+    // mid-game, and when paused
+    @ValueSource(ints = {1_000, 2_000})
+    void forkPlaysOnLikeTheGameItForkedFrom(int forkFrame) {
+        Settings settings = Settings.builder()
+                .setSceneWidthBlocks(60)
+                .setSceneHeightBlocks(30)
+                .setEngineMode(EngineMode.CHECKED)
+                .build();
+        ScriptedControls sourceControls = new ScriptedControls();
+        ScriptedRandom sourceRandom = new ScriptedRandom();
+        NTetris source = new NTetris(settings, canvas, sounds, sourceControls, new NoopGameJournal(), sourceRandom);
+        source.addRubbleColumnWithHole(30, 15);
+        NTetris copy = new NTetris(settings, canvas, sounds, new ScriptedControls(), new NoopGameJournal(), new ScriptedRandom());
+        copy.addRubbleColumnWithHole(30, 15);
+        long frameDuration = GameTime.fromMillis(1000.0 / 60);
+        for (int frame = 0; frame < forkFrame; frame++) {
+            source.step(frame * frameDuration);
+            copy.step(frame * frameDuration);
+        }
+
+        NTetris fork = source.fork(canvas, sounds, sourceControls.copy(), new NoopGameJournal(), sourceRandom.copy());
+        // past the first time the speed goes up, a minute into the game
+        for (int frame = forkFrame; frame < 4_000; frame++) {
+            fork.step(frame * frameDuration);
+            source.step(frame * frameDuration);
+            copy.step(frame * frameDuration);
+            assertThat(fork.prettyPrintRubble()).as("fork at frame %s", frame).isEqualTo(copy.prettyPrintRubble());
+            assertThat(fork.stateHash()).as("fork at frame %s", frame).isEqualTo(copy.stateHash());
+            assertThat(source.prettyPrintRubble()).as("source at frame %s", frame).isEqualTo(copy.prettyPrintRubble());
+            assertThat(source.stateHash()).as("source at frame %s", frame).isEqualTo(copy.stateHash());
+        }
+    }
+
+    private void advanceGameTimeBy(long diff) {
         gameTime += diff;
         tetris.render(gameTime);
     }
 
     private void startGameTime() {
-        gameTime = 0.0;
+        gameTime = 0;
         tetris.render(gameTime);
     }
 
+    /**
+     * Every so many frames, moves the shapes, rotates them or drops them; pauses the game for a while.
+     */
+    private static final class ScriptedControls implements ControlState {
+        private int frame;
+
+        ScriptedControls copy() {
+            ScriptedControls copy = new ScriptedControls();
+            copy.frame = frame;
+            return copy;
+        }
+
+        @Override
+        public void forAllActiveControls(long gameTime, Consumer<GameControl> activeControlConsumer) {
+            frame++;
+            if (frame == 1_950 || frame == 2_100) {
+                activeControlConsumer.accept(GameControl.PAUSE);
+            }
+            if (frame % 17 == 0) {
+                activeControlConsumer.accept(GameControl.LEFT_PLAYER_ROTATE);
+            }
+            if (frame % 19 == 0) {
+                activeControlConsumer.accept(frame % 38 == 0 ? GameControl.RIGHT_PLAYER_UP : GameControl.RIGHT_PLAYER_DOWN);
+            }
+            if (frame % 97 == 0) {
+                activeControlConsumer.accept(GameControl.LEFT_PLAYER_DROP);
+            }
+            if (frame % 113 == 0) {
+                activeControlConsumer.accept(GameControl.RIGHT_PLAYER_ROTATE);
+            }
+        }
+    }
+
+    /**
+     * Random numbers that only depend on how many have been drawn, so that a copy draws the same ones.
+     */
+    private static final class ScriptedRandom implements RandomNumberGenerator {
+        private long drawCount;
+
+        ScriptedRandom copy() {
+            ScriptedRandom copy = new ScriptedRandom();
+            copy.drawCount = drawCount;
+            return copy;
+        }
+
+        @Override
+        public int nextInt(int range) {
+            return new Random(drawCount++).nextInt(range);
+        }
+    }
+
     private static Settings settingsForScenario(String scenario) {
         int width = scenario.substring(0, scenario.indexOf('\n')).length() / 5;
         return Settings.builder()
                 .setSceneWidthBlocks(width)
                 .setSceneHeightBlocks(scenario.trim().split("\n").length)
+                .setEngineMode(EngineMode.CHECKED)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.GameTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ParallelRubbleRowsExecutorTest {
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 200;
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void resolvesRubbleExactlyAsSequentialExecutor() {
+        String rubble = randomRubble(new Random(0));
+        GameEvents sequentialEvents = new GameEvents();
+        GameEvents parallelEvents = new GameEvents();
+        GameScene sequentialScene = new GameScene(WIDTH, HEIGHT, sequentialEvents);
+        GameScene parallelScene = new GameScene(WIDTH, HEIGHT, parallelEvents, new ParallelRubbleRowsExecutor(pool));
+        sequentialScene.initialiseRubbleFromPrettyPrint(0, rubble);
+        parallelScene.initialiseRubbleFromPrettyPrint(0, rubble);
+
+        for (int frame = 1; frame <= 1000; frame++) {
+            long gameTime = GameTime.fromMillis(frame * 1000.0 / 60);
+            sequentialScene.onFrameStart(gameTime);
+            sequentialScene.moveRubble();
+            parallelScene.onFrameStart(gameTime);
+            parallelScene.moveRubble();
+
+            assertThat(parallelScene.prettyPrintRubble()).as("frame %s", frame).isEqualTo(sequentialScene.prettyPrintRubble());
+            assertThat(parallelScene.copyOfRubbleIndex()).as("frame %s", frame).isEqualTo(sequentialScene.copyOfRubbleIndex());
+            assertThat(parallelEvents).as("frame %s", frame).hasToString(sequentialEvents.toString());
+            sequentialEvents.clear();
+            parallelEvents.clear();
+        }
+    }
+
+    private static String randomRubble(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int kind = random.nextInt(6);
+                if (kind == 0 && x > 0) {
+                    sb.append(String.format("[<%02d]", random.nextInt(x)));
+                } else if (kind == 1 && x < WIDTH - 1) {
+                    sb.append(String.format("[>%02d]", x + 1 + random.nextInt(WIDTH - 1 - x)));
+                } else if (kind == 2) {
+                    sb.append("[ O ]");
+                } else {
+                    sb.append("[   ]");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -119,6 +119,16 @@ final class PlayerShapeTest {
         assertThat(shape).isEqualTo(originalShape);
     }
 
+    @Test
+    void rotationIsInternedAndCyclic() {
+        RectangularPattern pattern = PlayerShapeType.L.getPattern();
+        PlayerShape shape = PlayerShape.of(pattern, 2, 2, 1);
+
+        PlayerShape rotatedShape = shape.rotate();
+        assertThat(rotatedShape.pattern()).isSameAs(pattern.rotated());
+        assertThat(rotatedShape.rotate().rotate().rotate().pattern()).isSameAs(pattern);
+    }
+
     @Test
     void toSingleBlockShapes(@Mock Consumer<RubbleShape> shapeConsumer) {
         /*
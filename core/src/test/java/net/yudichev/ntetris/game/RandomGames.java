@@ -0,0 +1,95 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.GameControl;
+import net.yudichev.ntetris.GameTime;
+import net.yudichev.ntetris.Settings;
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
+import net.yudichev.ntetris.journal.GameJournal;
+import net.yudichev.ntetris.sound.Sounds;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Games on scenes of random sizes with columns of rubble in the middle, played with random controls and frame times,
+ * nothing drawn and no sounds played.
+ */
+final class RandomGames {
+    static final GameCanvas CANVAS = new GameCanvas() {
+        @Override
+        public void beginFrame() {
+        }
+
+        @Override
+        public void renderBlock(double blockX, double blockY, Sprite sprite, double scale) {
+        }
+
+        @Override
+        public void renderText(String text) {
+        }
+
+        @Override
+        public void endFrame() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    static final Sounds SOUNDS = new Sounds() {
+        @Override
+        public void play(Sample sample) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+    private static final int FRAMES_PER_GAME = 1500;
+
+    private RandomGames() {
+    }
+
+    /**
+     * Plays a game, taking all the randomness from the given source, so that the same source plays the same game.
+     *
+     * @param afterFrame is given the game after each frame
+     */
+    static void play(Random random,
+                     EngineMode engineMode,
+                     GameEngineFactory engineFactory,
+                     GameJournal journal,
+                     Consumer<NTetris> afterFrame) {
+        int width = 8 + random.nextInt(20);
+        int height = 5 + random.nextInt(12);
+        GameControl[] controls = GameControl.values();
+        NTetris tetris = new NTetris(Settings.builder()
+                .setSceneWidthBlocks(width)
+                .setSceneHeightBlocks(height)
+                .setEngineMode(engineMode)
+                .build(),
+                CANVAS,
+                SOUNDS,
+                (gameTime, activeControlConsumer) -> {
+                    if (random.nextDouble() < 0.2) {
+                        GameControl control = controls[random.nextInt(controls.length)];
+                        if (control != GameControl.PAUSE || random.nextDouble() < 0.05) {
+                            activeControlConsumer.accept(control);
+                        }
+                    }
+                },
+                journal,
+                random::nextInt,
+                engineFactory);
+        for (int x = width / 3; x < width - width / 3; x++) {
+            tetris.addRubbleColumnWithHole(x, random.nextInt(height));
+        }
+        long gameTime = 0;
+        for (int frame = 0; frame < FRAMES_PER_GAME; frame++) {
+            tetris.render(gameTime);
+            afterFrame.accept(tetris);
+            gameTime += random.nextDouble() < 0.01 ? GameTime.millis(700) : GameTime.fromMillis(5 + random.nextDouble() * 50);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.Test;
+
+import static net.yudichev.ntetris.game.Row.row;
+import static net.yudichev.ntetris.game.ShapeConstants.O;
+import static net.yudichev.ntetris.game.ShapeConstants.X;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class RowTest {
+    @Test
+    void imposeThroughSubRowView() {
+        Row row = row(X, O, O, O, X);
+        Row subRow = row.subRow(1, 3);
+
+        subRow.impose(row(X, O, X));
+
+        assertThat(row).isEqualTo(row(X, X, O, X, X));
+        assertThat(subRow.isFull()).isFalse();
+        subRow.impose(row(O, X));
+        assertThat(subRow.isFull()).isTrue();
+        assertThat(row.isFull()).isTrue();
+    }
+
+    @Test
+    void imposeRejectsOverlappingElements() {
+        Row row = row(X, O, X);
+        assertThat(row.overlapsWith(row(O, O, X, X))).isTrue();
+        assertThat(row.overlapsWith(row(O, X))).isFalse();
+        assertThatThrownBy(() -> row.impose(row(O, O, X))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,77 @@
+package net.yudichev.ntetris.game;
+
+import java.util.Random;
+
+import static net.yudichev.ntetris.game.RectangularPattern.pattern;
+import static net.yudichev.ntetris.game.Row.row;
+import static net.yudichev.ntetris.game.ShapeConstants.O;
+import static net.yudichev.ntetris.game.ShapeConstants.X;
+
+/**
+ * Cost of the bitboard kernels of {@link RubbleOccupancy} on a large, half full board. Not part of the test suite, run
+ * {@link #main(String[])}.
+ */
+final class RubbleOccupancyBenchmark {
+    private static final int WIDTH = 500;
+    private static final int HEIGHT = 300;
+    private static final int OPERATIONS = 10_000_000;
+    private static final RectangularPattern PATTERN = pattern(
+            row(X, X, X, O),
+            row(O, O, X, O),
+            row(O, O, X, X),
+            row(O, O, X, O));
+
+    private RubbleOccupancyBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        RubbleOccupancy occupancy = new RubbleOccupancy(WIDTH, HEIGHT, colIdx -> {});
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (random.nextBoolean()) {
+                    occupancy.set(x, y, random.nextBoolean());
+                }
+            }
+        }
+        int[] offsetsX = new int[1024];
+        int[] offsetsY = new int[1024];
+        for (int i = 0; i < offsetsX.length; i++) {
+            offsetsX[i] = random.nextInt(WIDTH - PATTERN.width() + 1);
+            offsetsY[i] = random.nextInt(HEIGHT - PATTERN.height() + 1);
+        }
+
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            int overlapCount = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (occupancy.overlaps(PATTERN, offsetsX[i & 1023], offsetsY[i & 1023])) {
+                    overlapCount++;
+                }
+            }
+            report("overlaps", start, overlapCount);
+
+            start = System.nanoTime();
+            int fullColumnCount = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (occupancy.isColumnFullAndStationary(offsetsX[i & 1023])) {
+                    fullColumnCount++;
+                }
+            }
+            report("isColumnFullAndStationary", start, fullColumnCount);
+
+            start = System.nanoTime();
+            int rowCount = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                if (occupancy.nextNonEmptyRow(offsetsY[i & 1023]) >= 0) {
+                    rowCount++;
+                }
+            }
+            report("nextNonEmptyRow", start, rowCount);
+        }
+    }
+
+    private static void report(String operation, long startNanos, int result) {
+        System.out.printf("%s: %.2f ns/op (%s)%n", operation, (double) (System.nanoTime() - startNanos) / OPERATIONS, result);
+    }
+}
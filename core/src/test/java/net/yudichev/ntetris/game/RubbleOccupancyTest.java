@@ -0,0 +1,114 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static net.yudichev.ntetris.game.RectangularPattern.pattern;
+import static net.yudichev.ntetris.game.Row.row;
+import static net.yudichev.ntetris.game.ShapeConstants.O;
+import static net.yudichev.ntetris.game.ShapeConstants.X;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+final class RubbleOccupancyTest {
+    @Mock
+    RubbleColumnListener columnListener;
+
+    @Test
+    void overlapsAcrossWordBoundary() {
+        RubbleOccupancy occupancy = new RubbleOccupancy(130, 3, columnListener);
+        occupancy.set(64, 1, true);
+        RectangularPattern pattern = pattern(
+                row(X, X, O),
+                row(O, X, X));
+
+        assertThat(occupancy.overlaps(pattern, 61, 0)).isFalse();
+        assertThat(occupancy.overlaps(pattern, 62, 0)).isTrue();
+        assertThat(occupancy.overlaps(pattern, 62, 1)).isFalse();
+        assertThat(occupancy.overlaps(pattern, 63, 1)).isTrue();
+        assertThat(occupancy.overlaps(pattern, 64, 1)).isTrue();
+        assertThat(occupancy.overlaps(pattern, 127, 1)).isFalse();
+
+        occupancy.clear(64, 1);
+        assertThat(occupancy.overlaps(pattern, 63, 1)).isFalse();
+        assertThat(occupancy.isOccupied(64, 1)).isFalse();
+    }
+
+    @Test
+    void nonEmptyRows() {
+        RubbleOccupancy occupancy = new RubbleOccupancy(3, 130, columnListener);
+        assertThat(occupancy.nextNonEmptyRow(0)).isEqualTo(-1);
+
+        occupancy.set(0, 5, true);
+        occupancy.set(2, 5, false);
+        occupancy.set(1, 100, true);
+        assertThat(occupancy.nextNonEmptyRow(0)).isEqualTo(5);
+        assertThat(occupancy.nextNonEmptyRow(6)).isEqualTo(100);
+        assertThat(occupancy.nextNonEmptyRow(101)).isEqualTo(-1);
+
+        occupancy.clear(0, 5);
+        assertThat(occupancy.nextNonEmptyRow(0)).isEqualTo(5);
+        occupancy.clear(2, 5);
+        assertThat(occupancy.nextNonEmptyRow(0)).isEqualTo(100);
+    }
+
+    @Test
+    void columnFullAndStationary() {
+        RubbleOccupancy occupancy = new RubbleOccupancy(2, 70, columnListener);
+        for (int y = 0; y < 69; y++) {
+            occupancy.set(1, y, true);
+        }
+        occupancy.set(1, 69, false);
+        verifyNoInteractions(columnListener);
+        occupancy.setStationary(1, 69, true);
+        occupancy.setStationary(1, 69, true);
+        verify(columnListener).onColumnFullAndStationary(1);
+        assertThat(occupancy.isColumnFullAndStationary(1)).isTrue();
+        assertThat(occupancy.isColumnFullAndStationary(0)).isFalse();
+
+        occupancy.setStationary(1, 69, false);
+        assertThat(occupancy.isColumnFullAndStationary(1)).isFalse();
+
+        occupancy.setStationary(1, 69, true);
+        verify(columnListener, times(2)).onColumnFullAndStationary(1);
+        occupancy.clear(1, 3);
+        assertThat(occupancy.isColumnFullAndStationary(1)).isFalse();
+        verifyNoMoreInteractions(columnListener);
+    }
+
+    @Test
+    void freeDistance() {
+        RubbleOccupancy occupancy = new RubbleOccupancy(130, 2, columnListener);
+        occupancy.set(1, 0, true);
+        occupancy.set(100, 0, true);
+        occupancy.set(70, 1, true);
+        RectangularPattern pattern = pattern(
+                row(X, O, X),
+                row(X, X, X));
+
+        // the rubble in the gap of the pattern is what stops it first
+        assertThat(occupancy.freeDistance(pattern, 0, 0, 1)).isEqualTo(0);
+        assertThat(occupancy.freeDistance(pattern, 2, 0, 1)).isEqualTo(65);
+        assertThat(occupancy.freeDistance(pattern, 2, 0, -1)).isEqualTo(0);
+        assertThat(occupancy.freeDistance(pattern, 110, 0, -1)).isEqualTo(9);
+        assertThat(occupancy.freeDistance(pattern, 110, 0, 1)).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void markBlockedOffsetsY() {
+        RubbleOccupancy occupancy = new RubbleOccupancy(3, 70, columnListener);
+        occupancy.set(1, 3, true);
+        occupancy.set(0, 65, true);
+        RectangularPattern pattern = pattern(
+                row(X, O),
+                row(X, X));
+        long[] blockedOffsetsY = new long[2];
+
+        occupancy.markBlockedOffsetsY(pattern, 0, blockedOffsetsY);
+
+        assertThat(blockedOffsetsY).containsExactly(1L << 2, 1L << 1 | 1L);
+    }
+}
@@ -0,0 +1,48 @@
+package net.yudichev.ntetris.game;
+
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.jupiter.api.Test;
+
+import static net.yudichev.ntetris.game.GameConstants.INITIAL_DROP_STEP_DURATION_RUBBLE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class RubbleSchedulerTest {
+    private static final long STEP = INITIAL_DROP_STEP_DURATION_RUBBLE;
+
+    private final RubbleScheduler scheduler = new RubbleScheduler(10, 1);
+    private final IntArray dueCells = new IntArray();
+
+    @Test
+    void collectsBlocksOnceDue() {
+        scheduler.schedule(3, 0);
+        scheduler.schedule(5, STEP / 2);
+
+        assertThat(collectDue(STEP - 1)).isEmpty();
+        assertThat(collectDue(STEP)).containsExactly(3);
+        assertThat(collectDue(STEP + STEP / 2)).containsExactly(5);
+        assertThat(collectDue(STEP * 10)).isEmpty();
+    }
+
+    @Test
+    void reschedulingReplacesPreviousEntry() {
+        scheduler.schedule(3, 0);
+        scheduler.schedule(3, STEP / 2);
+
+        assertThat(collectDue(STEP)).isEmpty();
+        assertThat(collectDue(STEP + STEP / 2)).containsExactly(3);
+    }
+
+    @Test
+    void overdueBlocksAreCollectedNextTime() {
+        collectDue(STEP * 5);
+        scheduler.schedule(7, 0);
+
+        assertThat(collectDue(STEP * 5)).containsExactly(7);
+    }
+
+    private int[] collectDue(long gameTime) {
+        dueCells.clear();
+        scheduler.collectDue(gameTime, dueCells);
+        return dueCells.toArray();
+    }
+}
@@ -0,0 +1,86 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.Test;
+
+import static net.yudichev.ntetris.game.RubbleStore.NONE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class RubbleStoreTest {
+    private final RubbleStore store = new RubbleStore(100, 3, colIdx -> {});
+
+    @Test
+    void keepsBlockAttributes() {
+        store.add(98, 2, -1, 0, Player.RIGHT, 123_500L);
+        store.setTransitionSourceX(98, 2, 99);
+
+        assertThat(store.isOccupied(98, 2)).isTrue();
+        assertThat(store.speedX(98, 2)).isEqualTo(-1);
+        assertThat(store.invisibleWallX(98, 2)).isEqualTo(0);
+        assertThat(store.fallCausedBy(98, 2)).isEqualTo(Player.RIGHT);
+        assertThat(store.lastMoveTime(98, 2)).isEqualTo(123_500L);
+        assertThat(store.transitionSourceX(98, 2)).isEqualTo(99);
+
+        store.move(98, 97, 2);
+        store.stopInRow(97, 2);
+        assertThat(store.isOccupied(98, 2)).isFalse();
+        assertThat(store.speedX(97, 2)).isEqualTo(0);
+        assertThat(store.invisibleWallX(97, 2)).isEqualTo(NONE);
+        assertThat(store.fallCausedBy(97, 2)).isNull();
+        assertThat(store.lastMoveTime(97, 2)).isEqualTo(123_500L);
+        assertThat(store.transitionSourceX(97, 2)).isEqualTo(99);
+    }
+
+    @Test
+    void movesWithinRowAndIndexesTheMoveSeparately() {
+        RubbleStore moved = new RubbleStore(100, 3, colIdx -> {});
+        store.add(70, 1, 1, 99, Player.LEFT, 500L);
+        moved.copyFrom(store);
+
+        store.move(70, 71, 1);
+        moved.moveInRow(70, 71, 1);
+        assertThat(moved.isOccupied(70, 1)).isFalse();
+        assertThat(moved.isOccupied(71, 1)).isTrue();
+        assertThat(moved.lastMoveTime(71, 1)).isEqualTo(500L);
+        assertThat(moved.stateHash()).isEqualTo(store.stateHash());
+
+        moved.indexMoved(70, 71, 1);
+        assertThat(moved.copyOfIndex()).isEqualTo(store.copyOfIndex());
+    }
+
+    @Test
+    void copiesAndClearsInBulk() {
+        store.add(1, 0, 0L);
+        store.add(70, 1, 1, 99, Player.LEFT, 0L);
+        RubbleStore copy = new RubbleStore(100, 3, colIdx -> {});
+
+        copy.copyFrom(store);
+        store.clear();
+
+        assertThat(store.isOccupied(1, 0)).isFalse();
+        assertThat(store.nextNonEmptyRow(0)).isEqualTo(-1);
+        assertThat(copy.isOccupied(1, 0)).isTrue();
+        assertThat(copy.speedX(70, 1)).isEqualTo(1);
+        assertThat(copy.invisibleWallX(70, 1)).isEqualTo(99);
+        assertThat(copy.transitionSourceX(70, 1)).isEqualTo(NONE);
+        assertThat(copy.nextNonEmptyRow(1)).isEqualTo(1);
+    }
+
+    @Test
+    void forksShareNothingObservable() {
+        store.add(1, 0, 0L);
+        store.add(70, 1, 1, 99, Player.LEFT, 0L);
+        RubbleStore fork = store.fork(colIdx -> {});
+
+        store.move(70, 71, 1);
+        fork.clear(1, 0);
+        fork.setLastMoveTime(70, 1, 5_000L);
+
+        assertThat(store.isOccupied(1, 0)).isTrue();
+        assertThat(store.isOccupied(70, 1)).isFalse();
+        assertThat(store.lastMoveTime(71, 1)).isEqualTo(0L);
+        assertThat(fork.isOccupied(1, 0)).isFalse();
+        assertThat(fork.isOccupied(71, 1)).isFalse();
+        assertThat(fork.speedX(70, 1)).isEqualTo(1);
+        assertThat(fork.lastMoveTime(70, 1)).isEqualTo(5_000L);
+    }
+}
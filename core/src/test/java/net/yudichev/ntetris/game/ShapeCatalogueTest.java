@@ -0,0 +1,46 @@
+package net.yudichev.ntetris.game;
+
+import org.junit.jupiter.api.Test;
+
+import static net.yudichev.ntetris.game.RectangularPattern.pattern;
+import static net.yudichev.ntetris.game.Row.row;
+import static net.yudichev.ntetris.game.ShapeConstants.O;
+import static net.yudichev.ntetris.game.ShapeConstants.X;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class ShapeCatalogueTest {
+    @Test
+    void parse() {
+        ShapeCatalogue catalogue = ShapeCatalogue.parse("" +
+                "# comment\n" +
+                "\n" +
+                "V\n" +
+                "X..\n" +
+                "X..\n" +
+                "XXX\n" +
+                "\n" +
+                "\n" +
+                "I\n" +
+                "XXXXX");
+
+        assertThat(catalogue.size()).isEqualTo(2);
+        assertThat(catalogue.name(0)).isEqualTo("V");
+        assertThat(catalogue.spawnPattern(0)).isEqualTo(pattern(
+                row(X, O, O),
+                row(X, O, O),
+                row(X, X, X)));
+        assertThat(catalogue.spawnWidth(1)).isEqualTo(5);
+        assertThat(catalogue.spawnHeight(1)).isEqualTo(1);
+        assertThat(catalogue.fitsScene(5, 3)).isTrue();
+        assertThat(catalogue.fitsScene(4, 3)).isFalse();
+    }
+
+    @Test
+    void rejectsMalformedShapes() {
+        assertThatThrownBy(() -> ShapeCatalogue.parse("A\nXX\nX\n")).hasMessageContaining("rows of different width");
+        assertThatThrownBy(() -> ShapeCatalogue.parse("A\n..\n")).hasMessageContaining("no elements");
+        assertThatThrownBy(() -> ShapeCatalogue.parse("A\nXO\n")).hasMessageContaining("line 2");
+        assertThatThrownBy(() -> ShapeCatalogue.parse("# nothing\n")).hasMessageContaining("empty");
+    }
+}
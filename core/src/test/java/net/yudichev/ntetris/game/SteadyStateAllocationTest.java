@@ -0,0 +1,239 @@
+package net.yudichev.ntetris.game;
+
+import net.yudichev.ntetris.ControlState;
+import net.yudichev.ntetris.DeferredWorkScheduler;
+import net.yudichev.ntetris.FixedTimestepGame;
+import net.yudichev.ntetris.GameControl;
+import net.yudichev.ntetris.GameTime;
+import net.yudichev.ntetris.Settings;
+import net.yudichev.ntetris.canvas.GameCanvas;
+import net.yudichev.ntetris.canvas.Sprite;
+import net.yudichev.ntetris.journal.GameJournal;
+import net.yudichev.ntetris.sound.Sounds;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static net.yudichev.ntetris.game.RectangularPattern.pattern;
+import static net.yudichev.ntetris.game.Row.row;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Frames in which no shape spawns and no rubble collapses must not allocate, as garbage collection pauses drop frames;
+ * the frames in which they do must not allocate much either.
+ * <p>
+ * The game is played the way it is in real time: through {@link FixedTimestepGame}, with a {@link DeferredWorkScheduler},
+ * and with a fixed script of controls that moves, rotates and drops the shapes. It is played a number of times to warm
+ * up, so that every path has run, every class is loaded and the shapes have been everywhere the script takes them, and
+ * then once more to measure.
+ * <p>
+ * Runs in the {@code allocationTest} task, on a JVM that only compiles with C1: queueing a method for C2 compilation
+ * allocates the string constants of its class on the thread that queues it, which for a rarely run path can happen
+ * whenever it reaches the compile threshold, however long the warm-up.
+ */
+@Tag("allocation")
+final class SteadyStateAllocationTest {
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 12;
+    // frames at a different rate than the simulation steps, so that frames run different numbers of steps
+    private static final long FRAME_DURATION = GameTime.TICKS_PER_SECOND / 50;
+    // 12 s of game time, enough for players to lower, rotate and drop, rubble to move and stop, and every kind of block to be drawn
+    private static final int FRAMES = 600;
+    private static final int WARM_UP_PLAYS = 10;
+    // spawning a shape or collapsing rubble may allocate a little, e.g. to keep the collapse effect's blocks
+    private static final long MAX_UNSTEADY_FRAME_ALLOCATION = 4 * 1024;
+    // the same instances every play, as shapes are interned per pattern instance
+    private static final RectangularPattern LEFT_PATTERN = pattern(row(true, true), row(true, true));
+    private static final RectangularPattern RIGHT_PATTERN = pattern(row(true, true, true), row(false, true, false));
+
+    @Test
+    void steadyStateFramesDoNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        for (int play = 0; play < WARM_UP_PLAYS; play++) {
+            play(threadMXBean);
+        }
+        FrameAllocations measuredPlay = play(threadMXBean);
+
+        int steadyFrameCount = 0;
+        List<String> allocatingFrames = new ArrayList<>();
+        List<String> overAllocatingUnsteadyFrames = new ArrayList<>();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            long allocated = measuredPlay.allocatedBytes[frame];
+            if (measuredPlay.steady[frame]) {
+                steadyFrameCount++;
+                if (allocated != 0) {
+                    allocatingFrames.add("frame " + frame + ": " + allocated + " bytes");
+                }
+            } else if (allocated > MAX_UNSTEADY_FRAME_ALLOCATION) {
+                overAllocatingUnsteadyFrames.add("frame " + frame + ": " + allocated + " bytes");
+            }
+        }
+        assertThat(steadyFrameCount).isGreaterThan(FRAMES / 2);
+        assertThat(measuredPlay.controlCount).isGreaterThan(0);
+        assertThat(allocatingFrames).isEmpty();
+        assertThat(overAllocatingUnsteadyFrames).isEmpty();
+    }
+
+    private static FrameAllocations play(com.sun.management.ThreadMXBean threadMXBean) {
+        long threadId = Thread.currentThread().getId();
+        CountingJournal journal = new CountingJournal();
+        CountingSounds sounds = new CountingSounds();
+        Settings settings = Settings.builder()
+                .setSceneWidthBlocks(WIDTH)
+                .setSceneHeightBlocks(HEIGHT)
+                .setEngineMode(EngineMode.PRODUCTION)
+                .build();
+        // deferred work always fits in the budget, so that it runs at the same frames every play
+        DeferredWorkScheduler deferredWork = new DeferredWorkScheduler(() -> 0L, settings.frameBudget(), settings.maxDeferredFrames());
+        NTetris tetris = new NTetris(settings,
+                new NoopCanvas(),
+                sounds,
+                new ScriptedControls(),
+                journal,
+                new Random(0)::nextInt,
+                SequentialRubbleRowsExecutor.INSTANCE,
+                deferredWork);
+        tetris.initialiseFromPrettyPrint(0, scenario(),
+                PlayerShape.of(LEFT_PATTERN, 0, 2, 1),
+                PlayerShape.of(RIGHT_PATTERN, WIDTH - 3, 7, -1));
+        FixedTimestepGame game = new FixedTimestepGame(tetris,
+                settings.simulationStepsPerSecond(),
+                settings.maxSimulationStepsPerFrame(),
+                settings.catchUpPolicy(),
+                deferredWork);
+
+        FrameAllocations frameAllocations = new FrameAllocations();
+        long gameTime = 0;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            int eventCount = journal.randomNumberCount + sounds.playCount;
+            long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+            game.render(gameTime);
+            frameAllocations.allocatedBytes[frame] = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            frameAllocations.steady[frame] = journal.randomNumberCount + sounds.playCount == eventCount;
+            gameTime += FRAME_DURATION;
+        }
+        frameAllocations.controlCount = journal.controlCount;
+        return frameAllocations;
+    }
+
+    /**
+     * A column with a hole in the middle, which a block of rubble on either side is travelling towards.
+     */
+    private static String scenario() {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (y == HEIGHT / 2) {
+                    sb.append(x == 0 ? "[>39]" : x == WIDTH - 1 ? "[<00]" : "[   ]");
+                } else {
+                    sb.append(x >= WIDTH / 2 - 2 && x < WIDTH / 2 + 2 ? "[ O ]" : "[   ]");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static final class FrameAllocations {
+        final long[] allocatedBytes = new long[FRAMES];
+        // no shape spawned and no rubble collapsed
+        final boolean[] steady = new boolean[FRAMES];
+        int controlCount;
+    }
+
+    /**
+     * Every so many steps, moves the shapes up or down, rotates them or drops them.
+     */
+    private static final class ScriptedControls implements ControlState {
+        private long step;
+
+        @Override
+        public void forAllActiveControls(long gameTime, Consumer<GameControl> activeControlConsumer) {
+            step++;
+            if (step % 23 == 0) {
+                activeControlConsumer.accept(GameControl.LEFT_PLAYER_ROTATE);
+            }
+            if (step % 29 == 0) {
+                activeControlConsumer.accept(GameControl.RIGHT_PLAYER_ROTATE);
+            }
+            if (step % 31 == 0) {
+                activeControlConsumer.accept(step % 62 == 0 ? GameControl.LEFT_PLAYER_UP : GameControl.LEFT_PLAYER_DOWN);
+            }
+            if (step % 37 == 0) {
+                activeControlConsumer.accept(step % 74 == 0 ? GameControl.RIGHT_PLAYER_DOWN : GameControl.RIGHT_PLAYER_UP);
+            }
+            if (step % 170 == 0) {
+                activeControlConsumer.accept(GameControl.LEFT_PLAYER_DROP);
+            }
+            if (step % 190 == 0) {
+                activeControlConsumer.accept(GameControl.RIGHT_PLAYER_DROP);
+            }
+        }
+    }
+
+    private static final class CountingJournal implements GameJournal {
+        int randomNumberCount;
+        int controlCount;
+
+        @Override
+        public void beginFrame(long time) {
+        }
+
+        @Override
+        public void randomNextInt(int range, int result) {
+            randomNumberCount++;
+        }
+
+        @Override
+        public void gameControlActive(GameControl gameControl) {
+            controlCount++;
+        }
+
+        @Override
+        public void settings(Settings settings) {
+        }
+    }
+
+    private static final class CountingSounds implements Sounds {
+        int playCount;
+
+        @Override
+        public void play(Sample sample) {
+            playCount++;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class NoopCanvas implements GameCanvas {
+        @Override
+        public void beginFrame() {
+        }
+
+        @Override
+        public void renderBlock(double blockX, double blockY, Sprite sprite, double scale) {
+        }
+
+        @Override
+        public void renderText(String text) {
+        }
+
+        @Override
+        public void endFrame() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
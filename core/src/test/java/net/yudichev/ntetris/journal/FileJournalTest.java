@@ -0,0 +1,36 @@
+package net.yudichev.ntetris.journal;
+
+import net.yudichev.ntetris.GameControl;
+import net.yudichev.ntetris.Settings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class FileJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void flushesEachFrameWhenTheNextOneBegins() throws IOException {
+        Path path = dir.resolve("journal.txt");
+        FileJournal journal = new FileJournal(path);
+        journal.settings(Settings.builder().setSceneWidthBlocks(20).setSceneHeightBlocks(12).build());
+        journal.beginFrame(1_000);
+        journal.randomNextInt(7, 3);
+        journal.gameControlActive(GameControl.PAUSE);
+
+        journal.beginFrame(2_000);
+        assertThat(Files.readAllLines(path)).containsExactly("SGS=20,12", "FRD=1000", "RND=7,3", "CRL=PAUSE");
+
+        journal.randomNextInt(5, 1);
+        journal.flush();
+        assertThat(Files.readAllLines(path)).endsWith("FRD=1000", "RND=5,1");
+
+        journal.close();
+    }
+}
@@ -9,6 +9,8 @@ public final class DesktopLauncher {
         LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
         config.width = 1280;
         config.height = 768;
+        // the game is simulated at its own rate, see Settings.simulationStepsPerSecond(); 0 renders as fast as possible
+        config.foregroundFPS = Integer.getInteger("ntetris.fps", 60);
         //noinspection ResultOfObjectAllocationIgnored
         new LwjglApplication(new GdxGame(), config);
     }